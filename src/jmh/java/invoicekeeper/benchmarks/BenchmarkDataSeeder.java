@@ -0,0 +1,165 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.repositories.CompanyNameIndexRepository;
+import invoicekeeper.repositories.Ngrams;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Deterministic bulk data: company sizes are skewed so a few companies own most of the invoices,
+ * every invoice has 1-20 items named from a fixed vocabulary. The item name trigrams, the company name tokens and the
+ * receivables are filled the way the application maintains them.
+ */
+public class BenchmarkDataSeeder {
+    static final String[] ITEM_NAMES = {"RAM", "GPU", "processzor", "alaplap", "okostelefon", "4K TV", "Playstation 5",
+            "termosz", "monitor", "billentyuzet", "eger", "SSD", "HDD", "tapegyseg", "halozati kartya", "router",
+            "nyomtato", "toner", "papir", "kabel"};
+    private static final LocalDate FIRST_ISSUE_DATE = LocalDate.of(2020, 1, 1);
+    private static final int BATCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random;
+    private final List<SeededInvoice> invoices = new ArrayList<>();
+
+    public BenchmarkDataSeeder(JdbcTemplate jdbcTemplate, long seed) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.random = new Random(seed);
+    }
+
+    public void seed(int companyCount, int invoiceCount) {
+        List<Object[]> companies = new ArrayList<>();
+        List<Object[]> tokenRows = new ArrayList<>();
+        for (int c = 1; c <= companyCount; c++) {
+            companies.add(new Object[]{c, companyName(c), vatNumber(c), bankAccountNumber(c)});
+            List<String> tokens = CompanyNameIndexRepository.tokens(companyName(c));
+            for (int t = 0; t < tokens.size(); t++) {
+                tokenRows.add(new Object[]{t == 0, tokens.get(t), c});
+            }
+            if (companies.size() == BATCH_SIZE) {
+                flushCompanies(companies, tokenRows);
+            }
+        }
+        flushCompanies(companies, tokenRows);
+
+        List<Object[]> invoiceRows = new ArrayList<>();
+        List<Object[]> itemRows = new ArrayList<>();
+        List<Object[]> ngramRows = new ArrayList<>();
+        for (int i = 1; i <= invoiceCount; i++) {
+            int company = skewedCompany(random, companyCount);
+            LocalDate issueDate = FIRST_ISSUE_DATE.plusDays(random.nextInt(3 * 365));
+            LocalDate dueDate = issueDate.plusDays(8 + random.nextInt(53));
+            String status = random.nextInt(10) < 7 ? "PAYED" : "UNPAYED";
+            int amount = 0;
+            int itemCount = 1 + random.nextInt(20);
+            Set<String> ngrams = new HashSet<>();
+            for (int j = 0; j < itemCount; j++) {
+                int pieces = 1 + random.nextInt(5);
+                int price = pieces * (100 + random.nextInt(10000));
+                amount += price;
+                String name = ITEM_NAMES[random.nextInt(ITEM_NAMES.length)];
+                itemRows.add(new Object[]{i, name, pieces, price});
+                ngrams.addAll(Ngrams.forIndex(name));
+            }
+            for (String ngram : ngrams) {
+                ngramRows.add(new Object[]{ngram, i});
+            }
+            String invoiceNumber = "SEED-" + i;
+            invoiceRows.add(new Object[]{i, invoiceNumber, Date.valueOf(issueDate), Date.valueOf(dueDate), status, amount, company});
+            invoices.add(new SeededInvoice(invoiceNumber, amount, bankAccountNumber(company), vatNumber(company)));
+            if (invoiceRows.size() == BATCH_SIZE) {
+                flush(invoiceRows, itemRows, ngramRows);
+            }
+        }
+        flush(invoiceRows, itemRows, ngramRows);
+        jdbcTemplate.update("insert into receivables (company_id, due_date, unpaid_count, unpaid_amount, paid_count, paid_amount) " +
+                "select company_id, due_date, " +
+                "sum(case when payment_status = 'UNPAYED' then 1 else 0 end), sum(case when payment_status = 'UNPAYED' then amount_total else 0 end), " +
+                "sum(case when payment_status = 'PAYED' then 1 else 0 end), sum(case when payment_status = 'PAYED' then amount_total else 0 end) " +
+                "from invoices group by company_id, due_date");
+        restartIdentity("companies", "company_id", companyCount + 1);
+        restartIdentity("invoices", "invoice_id", invoiceCount + 1);
+    }
+
+    /**
+     * Empties the tables, for seeding a database that outlives the benchmark (MariaDB instead of the in-memory H2).
+     */
+    public void clear() {
+        for (String table : List.of("item_name_ngrams", "items_on_invoices", "invoices", "items_on_invoices_archive", "invoices_archive", "receivables", "company_name_tokens", "companies", "change_events")) {
+            jdbcTemplate.execute("delete from " + table);
+        }
+    }
+
+    public SeededInvoice randomInvoice() {
+        return invoices.get(ThreadLocalRandom.current().nextInt(invoices.size()));
+    }
+
+    public String randomVatNumber() {
+        return randomInvoice().getVatNumber();
+    }
+
+    private void flushCompanies(List<Object[]> companies, List<Object[]> tokenRows) {
+        jdbcTemplate.batchUpdate("insert into companies (company_id, name_of_company, vat_number, bank_account_number) values (?, ?, ?, ?)", companies);
+        jdbcTemplate.batchUpdate("insert into company_name_tokens (starts_name, token, company_id) values (?, ?, ?)", tokenRows);
+        companies.clear();
+        tokenRows.clear();
+    }
+
+    private void flush(List<Object[]> invoiceRows, List<Object[]> itemRows, List<Object[]> ngramRows) {
+        jdbcTemplate.batchUpdate("insert into invoices (invoice_id, invoice_number, date_of_issue, due_date, payment_status, amount_total, company_id) " +
+                "values (?, ?, ?, ?, ?, ?, ?)", invoiceRows);
+        jdbcTemplate.batchUpdate("insert into items_on_invoices (invoice_id, name_of_item, pieces_of_items, total_price) values (?, ?, ?, ?)", itemRows);
+        jdbcTemplate.batchUpdate("insert into item_name_ngrams (ngram, invoice_id) values (?, ?)", ngramRows);
+        invoiceRows.clear();
+        itemRows.clear();
+        ngramRows.clear();
+    }
+
+    private void restartIdentity(String table, String column, int next) {
+        boolean h2 = "H2".equals(jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+        if (h2) {
+            jdbcTemplate.execute("alter table " + table + " alter column " + column + " restart with " + next);
+        } else {
+            jdbcTemplate.execute("alter table " + table + " auto_increment = " + next);
+        }
+    }
+
+    /**
+     * A company picked so that a few low numbered companies come up most of the time, the same way the invoices are
+     * spread among them.
+     */
+    static int skewedCompany(Random random, int companyCount) {
+        return 1 + (int) (companyCount * Math.pow(random.nextDouble(), 3));
+    }
+
+    static String companyName(int company) {
+        return "Company " + company;
+    }
+
+    static String vatNumber(int company) {
+        return String.format("%08d-1-%02d", company, company % 100);
+    }
+
+    static String bankAccountNumber(int company) {
+        return String.format("%08d-%08d-00000000", company, company);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class SeededInvoice {
+        private String invoiceNumber;
+        private int amount;
+        private String bankAccountNumber;
+        private String vatNumber;
+    }
+}
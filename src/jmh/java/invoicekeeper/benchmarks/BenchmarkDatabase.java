@@ -0,0 +1,68 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.InvoiceKeeperApplication;
+import invoicekeeper.service.InvoiceImportService;
+import invoicekeeper.service.InvoicingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * Application context on an in-memory H2 database (MySQL mode), migrated by Flyway and seeded once per trial.
+ * Scale it with -p invoiceCount=... (10k to 1M); larger volumes need a bigger heap, see BenchmarkRunner.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+
+    @Param({"10000"})
+    int invoiceCount;
+
+    @Param({"200"})
+    int companyCount;
+
+    ConfigurableApplicationContext context;
+    InvoicingService service;
+    InvoiceImportService importService;
+    BenchmarkDataSeeder seeder;
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(InvoiceKeeperApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("benchmark")
+                .run();
+        service = context.getBean(InvoicingService.class);
+        importService = context.getBean(InvoiceImportService.class);
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), 42L);
+        seeder.seed(companyCount, invoiceCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    /**
+     * Runs the call with one entity manager bound for its whole duration, the way open-in-view does for an HTTP request.
+     */
+    public <T> T inRequestScope(Supplier<T> call) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return call.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package invoicekeeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks in throughput and sample-time mode (the latter reports latency percentiles) with the GC profiler
+ * for allocation rates, and writes the results to target/jmh-result.json so runs of two builds can be compared.
+ * Any standard JMH command line option can be passed through, e.g. a benchmark regex or -p invoiceCount=1000000.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .jvmArgsAppend("-Xmx4g")
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json");
+        if (commandLine.getBenchModes().isEmpty()) {
+            options.mode(Mode.Throughput).mode(Mode.SampleTime);
+        }
+        new Runner(options.build()).run();
+    }
+}
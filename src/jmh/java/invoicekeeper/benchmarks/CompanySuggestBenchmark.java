@@ -0,0 +1,27 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.CompanySuggestionDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Type-ahead company suggestions, each call typing a random prefix of a seeded company name: of the whole name
+ * ("Company 12") or of its later word ("12"). The target is the latency at a million companies:
+ * -p companyCount=1000000 -p invoiceCount=10000 -bm sample.
+ */
+@State(Scope.Benchmark)
+public class CompanySuggestBenchmark {
+
+    @Param({"name", "word"})
+    String prefixOf;
+
+    @Benchmark
+    public List<CompanySuggestionDto> suggestCompanies(BenchmarkDatabase database) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int company = 1 + random.nextInt(database.companyCount);
+        String name = "name".equals(prefixOf) ? BenchmarkDataSeeder.companyName(company) : String.valueOf(company);
+        return database.service.suggestCompanies(name.substring(0, 1 + random.nextInt(name.length())), 10);
+    }
+}
@@ -0,0 +1,62 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.exceptions.ConcurrentUpdateException;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes of all benchmark threads on the first hotCompanies companies, one company taking every write at the lowest
+ * setting. The account number updates conflict on the version of the company and are retried, which the score
+ * includes; an update that runs out of attempts counts as a completed call as well. A payment score is a new invoice of
+ * a hot company and its payment, the payments of different invoices take the lock of the company row in turn without
+ * conflicting.
+ */
+@State(Scope.Benchmark)
+@Threads(8)
+public class ContendedUpdateBenchmark {
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Param({"1", "10", "200"})
+    int hotCompanies;
+
+    private String[] bankAccountNumbers;
+
+    @Setup(Level.Trial)
+    public void readBankAccountNumbers(BenchmarkDatabase database) {
+        bankAccountNumbers = new String[hotCompanies];
+        for (int i = 0; i < hotCompanies; i++) {
+            bankAccountNumbers[i] = database.service.getCompanyById(i + 1).getBankAccountNumber();
+        }
+    }
+
+    @Benchmark
+    public CompanyDto updateAccountNumber(BenchmarkDatabase database) {
+        long id = 1 + ThreadLocalRandom.current().nextInt(hotCompanies);
+        String bankAccountNumber = String.format("11111111-22222222-%08d", sequence.incrementAndGet() % 100_000_000);
+        try {
+            return database.service.updateAccountNumber(id, new UpdateAccountNumberCommand(bankAccountNumber));
+        } catch (ConcurrentUpdateException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public InvoiceDto addAndPayInvoice(BenchmarkDatabase database) {
+        int company = ThreadLocalRandom.current().nextInt(hotCompanies);
+        String invoiceNumber = "CONTENDED-" + sequence.incrementAndGet();
+        database.service.addNewInvoiceToCompany(company + 1, new AddNewInvoiceCommand(invoiceNumber, LocalDate.now().minusDays(1),
+                LocalDate.now().plusDays(30), PaymentStatus.UNPAYED, List.of(new InvoiceItem("RAM", 1, 5000)), 5000));
+        return database.service.payInvoice(new PayInvoiceCommand(invoiceNumber, 5000, bankAccountNumbers[company]));
+    }
+}
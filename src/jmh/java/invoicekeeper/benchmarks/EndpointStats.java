@@ -0,0 +1,84 @@
+package invoicekeeper.benchmarks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The responses of one endpoint during the measured part of a load test. Every latency is kept, so the percentiles are
+ * exact; a run of a few minutes at a few hundred requests per second is a few hundred thousand longs.
+ */
+class EndpointStats {
+    private long[] latencies = new long[1024];
+    private int responses;
+    private long errors;
+    private long dropped;
+    private long skipped;
+    private final Map<String, Long> statuses = new TreeMap<>();
+
+    synchronized void record(long latencyNanos, String status, boolean error) {
+        if (responses == latencies.length) {
+            latencies = Arrays.copyOf(latencies, responses * 2);
+        }
+        latencies[responses++] = latencyNanos;
+        statuses.merge(status, 1L, Long::sum);
+        if (error) {
+            errors++;
+        }
+    }
+
+    /**
+     * A request that was due but not sent, because too many were waiting for their response. Counts as an error.
+     */
+    synchronized void dropped() {
+        dropped++;
+    }
+
+    /**
+     * A request that was due but could not be made, e.g. a payment before any invoice to pay has been created. Not an
+     * error, and not counted in the error rate.
+     */
+    synchronized void skipped() {
+        skipped++;
+    }
+
+    synchronized Map<String, Object> summary(Duration measured) {
+        long[] sorted = Arrays.copyOf(latencies, responses);
+        Arrays.sort(sorted);
+        long requests = responses + dropped;
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", requests);
+        summary.put("errors", errors + dropped);
+        summary.put("dropped", dropped);
+        summary.put("skipped", skipped);
+        summary.put("errorRate", requests == 0 ? 0.0 : round((double) (errors + dropped) / requests));
+        summary.put("throughputPerSecond", round(responses * 1000.0 / measured.toMillis()));
+        summary.put("p50Millis", percentile(sorted, 50));
+        summary.put("p95Millis", percentile(sorted, 95));
+        summary.put("p99Millis", percentile(sorted, 99));
+        summary.put("maxMillis", sorted.length == 0 ? 0.0 : millis(sorted[sorted.length - 1]));
+        summary.put("statuses", new TreeMap<>(statuses));
+        return summary;
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return millis(sorted[Math.max(rank, 1) - 1]);
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1_000_000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
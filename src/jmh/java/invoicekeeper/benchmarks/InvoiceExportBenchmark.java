@@ -0,0 +1,24 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.service.InvoiceExportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * CSV export of every invoice to a discarding stream. The allocation per export divided by the invoice count is the
+ * short-lived garbage of one exported invoice; it stays the same between -p invoiceCount=10000 and 200000, as nothing
+ * is kept once a row is written.
+ */
+@State(Scope.Benchmark)
+public class InvoiceExportBenchmark {
+    private final InvoiceFilter filter = new InvoiceFilter();
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    public void exportCsv(BenchmarkDatabase database) throws IOException {
+        database.context.getBean(InvoiceExportService.class).exportCsv(filter, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,68 @@
+package invoicekeeper.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceImportReportDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Importing the same records through the batch import and through the single invoice endpoint's service call,
+ * one score being one whole import of importSize invoices.
+ */
+@State(Scope.Benchmark)
+public class InvoiceImportBenchmark {
+    private final AtomicLong invoiceSequence = new AtomicLong();
+
+    @Param({"1000"})
+    int importSize;
+
+    private List<CreateNewInvoiceCommand> commands;
+    private byte[] ndjson;
+
+    @Setup(Level.Invocation)
+    public void prepareRecords(BenchmarkDatabase database) {
+        ObjectMapper objectMapper = database.context.getBean(ObjectMapper.class);
+        commands = new ArrayList<>(importSize);
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < importSize; i++) {
+            BenchmarkDataSeeder.SeededInvoice existing = database.seeder.randomInvoice();
+            CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("IMPORT-" + invoiceSequence.incrementAndGet(),
+                    LocalDate.now().minusDays(1), LocalDate.now().plusDays(30), PaymentStatus.UNPAYED,
+                    List.of(new InvoiceItem("RAM", 2, 2000), new InvoiceItem("GPU", 1, 3000)), 5000,
+                    "Benchmark company", existing.getVatNumber(), existing.getBankAccountNumber());
+            commands.add(command);
+            body.append(toJson(objectMapper, command)).append('\n');
+        }
+        ndjson = body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public InvoiceImportReportDto batchImport(BenchmarkDatabase database) {
+        return database.importService.importNdjson(new ByteArrayInputStream(ndjson));
+    }
+
+    @Benchmark
+    public int oneByOne(BenchmarkDatabase database) {
+        commands.forEach(database.service::saveNewInvoice);
+        return commands.size();
+    }
+
+    private String toJson(ObjectMapper objectMapper, CreateNewInvoiceCommand command) {
+        try {
+            return objectMapper.writeValueAsString(command);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.dtos.InvoicePageDto;
+import invoicekeeper.model.PaymentStatus;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * First page of the invoice listing with every filter on its own and all of them combined.
+ */
+@State(Scope.Benchmark)
+public class InvoiceListingBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"none", "companyName", "vatNumber", "issuedAfter", "overdue", "dueRange", "paymentStatus", "all"})
+    String filter;
+
+    InvoiceFilter invoiceFilter;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkDatabase database) {
+        boolean all = "all".equals(filter);
+        invoiceFilter = new InvoiceFilter();
+        if (all || "companyName".equals(filter)) {
+            invoiceFilter.setCompanyName("Company 1");
+        }
+        if (all || "vatNumber".equals(filter)) {
+            invoiceFilter.setVatNumber(database.seeder.randomVatNumber());
+        }
+        if (all || "issuedAfter".equals(filter)) {
+            invoiceFilter.setIssuedAfter(LocalDate.of(2022, 1, 1));
+        }
+        if (all || "overdue".equals(filter)) {
+            invoiceFilter.setIsOverDue("yes");
+        }
+        if (all || "dueRange".equals(filter)) {
+            invoiceFilter.setDueAfter(LocalDate.of(2021, 1, 1));
+            invoiceFilter.setDueBefore(LocalDate.of(2021, 7, 1));
+        }
+        if (all || "paymentStatus".equals(filter)) {
+            invoiceFilter.setPaymentStatus(PaymentStatus.UNPAYED);
+        }
+    }
+
+    @Benchmark
+    public InvoicePageDto getAllInvoices(BenchmarkDatabase database) {
+        return database.inRequestScope(() -> database.service.getAllInvoices(invoiceFilter, Optional.empty(), PAGE_SIZE, false));
+    }
+}
@@ -0,0 +1,54 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.ReportService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+public class InvoicingServiceBenchmark {
+    private final AtomicLong invoiceSequence = new AtomicLong();
+
+    @Benchmark
+    public InvoiceDto saveNewInvoice(BenchmarkDatabase database) {
+        BenchmarkDataSeeder.SeededInvoice existing = database.seeder.randomInvoice();
+        CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("BENCH-" + invoiceSequence.incrementAndGet(),
+                LocalDate.now().minusDays(1), LocalDate.now().plusDays(30), PaymentStatus.UNPAYED,
+                List.of(new InvoiceItem("RAM", 2, 2000), new InvoiceItem("GPU", 1, 3000)), 5000,
+                "Benchmark company", existing.getVatNumber(), existing.getBankAccountNumber());
+        return database.service.saveNewInvoice(command);
+    }
+
+    @Benchmark
+    public InvoiceDto payInvoice(BenchmarkDatabase database) {
+        BenchmarkDataSeeder.SeededInvoice invoice = database.seeder.randomInvoice();
+        return database.service.payInvoice(new PayInvoiceCommand(invoice.getInvoiceNumber(), 1, invoice.getBankAccountNumber()));
+    }
+
+    @Benchmark
+    public List<InvoiceDto> getInvoicesByItemName(BenchmarkDatabase database) {
+        String name = BenchmarkDataSeeder.ITEM_NAMES[ThreadLocalRandom.current().nextInt(BenchmarkDataSeeder.ITEM_NAMES.length)];
+        return database.inRequestScope(() -> database.service.getInvoicesByItemName(name, 0, 20));
+    }
+
+    @Benchmark
+    public ReceivablesReportDto getReceivables(BenchmarkDatabase database) {
+        return database.context.getBean(ReportService.class).getReceivables();
+    }
+
+    @Benchmark
+    public List<CompanyDto> findAllCompanies(BenchmarkDatabase database) {
+        return database.inRequestScope(() -> database.service.findAllCompanies(Optional.of("Company 1")));
+    }
+}
@@ -0,0 +1,171 @@
+package invoicekeeper.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import invoicekeeper.InvoiceKeeperApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * An HTTP load test with a fixed arrival rate: starts the application on the benchmark database, seeds it with
+ * {@link BenchmarkDataSeeder}, then sends the request mix of {@link LoadTestScenarios} at the given rate, whether the
+ * earlier requests have been answered or not. Unlike the JMH benchmarks, where a thread waits for a response before it
+ * sends the next request, a slow server does not slow down the load: latency is measured from the time a request was
+ * due, so the waiting shows up in the percentiles. Requests beyond the in-flight limit are dropped, and requests not
+ * answered within the timeout are given up; both count as errors.
+ * <p>
+ * The latency percentiles, throughput and error rate of each endpoint and of all of them are written with the settings
+ * to a JSON file (target/load-test-result.json), so the runs of two builds can be diffed. Settings are name=value
+ * arguments, see {@link #DEFAULTS}; mariadbDatabase runs it on MariaDB instead of the in-memory H2, the same way as
+ * {@link ReadApiLoadBenchmark}.
+ */
+@Slf4j
+public class LoadTestRunner {
+    static final Map<String, String> DEFAULTS = Map.of(
+            "rate", "100",
+            "duration", "PT60S",
+            "warmup", "PT10S",
+            "invoiceCount", "10000",
+            "companyCount", "200",
+            "seed", "42",
+            "maxInFlight", "1000",
+            "timeout", "PT30S",
+            "mariadbDatabase", "",
+            "output", "target/load-test-result.json");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> settings = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            String[] setting = arg.split("=", 2);
+            if (setting.length != 2 || !DEFAULTS.containsKey(setting[0])) {
+                throw new IllegalArgumentException("Unknown setting: " + arg + ", expected name=value with a name of " + DEFAULTS.keySet());
+            }
+            settings.put(setting[0], setting[1]);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(InvoiceKeeperApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .profiles("benchmark")
+                .properties("server.port=0")
+                .run(ReadApiLoadBenchmark.Server.databaseArguments(settings.get("mariadbDatabase")));
+        try {
+            new LoadTestRunner(context, settings).run();
+        } finally {
+            context.close();
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, String> settings;
+    private final LoadTestScenarios scenarios;
+    private final HttpClient client;
+    private final Random random;
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final EndpointStats total = new EndpointStats();
+
+    private LoadTestRunner(ConfigurableApplicationContext context, Map<String, String> settings) {
+        this.objectMapper = context.getBean(ObjectMapper.class);
+        this.settings = settings;
+        long seed = Long.parseLong(settings.get("seed"));
+        int invoiceCount = Integer.parseInt(settings.get("invoiceCount"));
+        int companyCount = Integer.parseInt(settings.get("companyCount"));
+        BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), seed);
+        seeder.clear();
+        seeder.seed(companyCount, invoiceCount);
+        String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        this.scenarios = new LoadTestScenarios(objectMapper, baseUrl, Duration.parse(settings.get("timeout")), invoiceCount, companyCount);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        this.random = new Random(seed);
+        scenarios.getScenarios().forEach(scenario -> stats.put(scenario.getName(), new EndpointStats()));
+    }
+
+    private void run() throws IOException, InterruptedException {
+        double rate = Double.parseDouble(settings.get("rate"));
+        Duration warmup = Duration.parse(settings.get("warmup"));
+        Duration duration = Duration.parse(settings.get("duration"));
+        int maxInFlight = Integer.parseInt(settings.get("maxInFlight"));
+        long warmupRequests = Math.round(warmup.toNanos() * rate / 1e9);
+        long requests = warmupRequests + Math.round(duration.toNanos() * rate / 1e9);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long due = start + Math.round(i * 1e9 / rate);
+            for (long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadTestScenarios.Scenario scenario = scenarios.pick(random);
+            Optional<LoadTestScenarios.Call> call = scenario.getCall().apply(random);
+            Optional<EndpointStats> measured = i < warmupRequests ? Optional.empty() : Optional.of(stats.get(scenario.getName()));
+            if (call.isEmpty()) {
+                measured.ifPresent(endpoint -> {
+                    endpoint.skipped();
+                    total.skipped();
+                });
+            } else if (!inFlight.tryAcquire()) {
+                measured.ifPresent(endpoint -> {
+                    endpoint.dropped();
+                    total.dropped();
+                });
+            } else {
+                send(call.get(), due, measured, inFlight);
+            }
+        }
+        inFlight.acquire(maxInFlight);
+        writeResult(duration);
+    }
+
+    private void send(LoadTestScenarios.Call call, long due, Optional<EndpointStats> measured, Semaphore inFlight) {
+        client.sendAsync(call.getRequest(), HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - due;
+                    inFlight.release();
+                    String status = error == null ? Integer.toString(response.statusCode()) : cause(error).getClass().getSimpleName();
+                    boolean failed = error != null || response.statusCode() >= 400;
+                    if (!failed) {
+                        call.getOnSuccess().accept(response.body());
+                    }
+                    measured.ifPresent(endpoint -> {
+                        endpoint.record(latency, status, failed);
+                        total.record(latency, status, failed);
+                    });
+                });
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private void writeResult(Duration measured) throws IOException {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((name, endpoint) -> endpoints.put(name, endpoint.summary(measured)));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", new TreeMap<>(settings));
+        result.put("total", total.summary(measured));
+        result.put("endpoints", endpoints);
+        Path output = Path.of(settings.get("output"));
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(output.toFile(), result);
+        log.info("Load test result written to {}", output.toAbsolutePath());
+    }
+}
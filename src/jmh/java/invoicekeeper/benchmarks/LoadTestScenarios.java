@@ -0,0 +1,280 @@
+package invoicekeeper.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import invoicekeeper.dtos.AddNewCompanyCommand;
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The request mix of the load test: every endpoint of /api/invoices and /api/companies with a weight, reads about
+ * nine in ten. Companies are picked with the skew of the seeded data, so the few large companies get most of the
+ * requests. The parameters come from the random of the runner, so a run with the same seed sends the same requests,
+ * except for the writes on the invoices and companies the run itself has created (paying, deleting), which take the
+ * oldest one already created and are skipped while there is none. They draw the same random numbers either way, so a
+ * skipped request does not shift the ones after it.
+ */
+class LoadTestScenarios {
+    private static final LocalDate LAST_ISSUE_DATE = LocalDate.of(2022, 12, 31);
+
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final int companyCount;
+    private final List<Scenario> scenarios = new ArrayList<>();
+    private final int totalWeight;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Queue<CreatedInvoice> unpaidInvoices = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> paidInvoiceIds = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> createdCompanyIds = new ConcurrentLinkedQueue<>();
+
+    LoadTestScenarios(ObjectMapper objectMapper, String baseUrl, Duration timeout, int invoiceCount, int companyCount) {
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.companyCount = companyCount;
+
+        add("GET /api/invoices/{id}", 21, random -> get("/api/invoices/" + (1 + random.nextInt(invoiceCount))));
+        add("GET /api/invoices", 12, random -> get(random.nextBoolean()
+                ? "/api/invoices?size=20&vatNumber=" + BenchmarkDataSeeder.vatNumber(company(random))
+                : "/api/invoices?size=20&paymentStatus=UNPAYED&issuedAfter=" + issueDate(random)));
+        add("GET /api/invoices (ndjson)", 3, random -> get("/api/invoices?vatNumber=" + BenchmarkDataSeeder.vatNumber(company(random)),
+                "application/x-ndjson"));
+        add("GET /api/invoices/find-item", 8, random -> get("/api/invoices/find-item?size=20&itemName="
+                + encode(BenchmarkDataSeeder.ITEM_NAMES[random.nextInt(BenchmarkDataSeeder.ITEM_NAMES.length)])));
+        add("GET /api/invoices/export", 2, random -> get("/api/invoices/export?vatNumber=" + BenchmarkDataSeeder.vatNumber(company(random)),
+                "text/csv"));
+        add("POST /api/invoices", 5, this::createInvoice);
+        add("PUT /api/invoices/payment", 3, random -> Optional.ofNullable(unpaidInvoices.poll())
+                .map(invoice -> new Call(json(request("/api/invoices/payment"), "PUT",
+                        new PayInvoiceCommand(invoice.getInvoiceNumber(), invoice.getAmount(), invoice.getBankAccountNumber())),
+                        body -> paidInvoiceIds.add(invoice.getId()))));
+        add("DELETE /api/invoices/{id}", 2, random -> Optional.ofNullable(paidInvoiceIds.poll())
+                .map(id -> new Call(request("/api/invoices/" + id).DELETE().build())));
+        add("POST /api/invoices/batch", 1, this::importInvoices);
+        add("POST /api/invoices/payment/statement", 1, random -> reconcileStatement());
+
+        add("GET /api/companies/{id}", 10, random -> get("/api/companies/" + company(random)));
+        add("GET /api/companies/{id}/invoices", 8, random -> get("/api/companies/" + company(random) + "/invoices?size=20"));
+        add("GET /api/companies/vat-number/{vat}", 8, random -> get("/api/companies/vat-number/" + BenchmarkDataSeeder.vatNumber(company(random))));
+        add("GET /api/companies", 4, random -> get("/api/companies?searchName="
+                + encode(BenchmarkDataSeeder.companyName(1 + random.nextInt(companyCount)))));
+        add("GET /api/companies/suggest", 8, random -> {
+            String name = BenchmarkDataSeeder.companyName(1 + random.nextInt(companyCount));
+            return get("/api/companies/suggest?q=" + encode(name.substring(0, Math.min(name.length(), 9 + random.nextInt(2)))));
+        });
+        add("POST /api/companies", 1, random -> {
+            long n = sequence.incrementAndGet();
+            return Optional.of(new Call(json(request("/api/companies"), "POST", new AddNewCompanyCommand("Load Company " + n,
+                    String.format("9%07d-2-%02d", n, n % 100), bankAccountNumber(random))),
+                    body -> createdCompanyIds.add(readId(body))));
+        });
+        add("POST /api/companies/{id}", 1, random -> {
+            LocalDate issueDate = issueDate(random);
+            return Optional.ofNullable(createdCompanyIds.peek())
+                    .map(id -> new Call(json(request("/api/companies/" + id), "POST", new AddNewInvoiceCommand(invoiceNumber(),
+                            issueDate, issueDate.plusDays(30), PaymentStatus.UNPAYED, List.of(new InvoiceItem("toner", 1, 900)), 900))));
+        });
+        add("PUT /api/companies/{id}", 1, random -> {
+            String bankAccountNumber = bankAccountNumber(random);
+            return Optional.ofNullable(createdCompanyIds.peek())
+                    .map(id -> new Call(json(request("/api/companies/" + id), "PUT", new UpdateAccountNumberCommand(bankAccountNumber))));
+        });
+        add("DELETE /api/companies/{id}", 1, random -> Optional.ofNullable(createdCompanyIds.poll())
+                .map(id -> new Call(request("/api/companies/" + id).DELETE().build())));
+
+        this.totalWeight = scenarios.stream().mapToInt(Scenario::getWeight).sum();
+    }
+
+    Scenario pick(Random random) {
+        int value = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            value -= scenario.getWeight();
+            if (value < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException("Weights changed while picking");
+    }
+
+    List<Scenario> getScenarios() {
+        return scenarios;
+    }
+
+    private Optional<Call> createInvoice(Random random) {
+        int company = company(random);
+        LocalDate issueDate = issueDate(random);
+        List<InvoiceItem> items = items(random);
+        String invoiceNumber = invoiceNumber();
+        int amount = amount(items);
+        String bankAccountNumber = BenchmarkDataSeeder.bankAccountNumber(company);
+        return Optional.of(new Call(json(request("/api/invoices"), "POST", new CreateNewInvoiceCommand(invoiceNumber, issueDate,
+                issueDate.plusDays(30), PaymentStatus.UNPAYED, items, amount, BenchmarkDataSeeder.companyName(company),
+                BenchmarkDataSeeder.vatNumber(company), bankAccountNumber)),
+                body -> unpaidInvoices.add(new CreatedInvoice(readId(body), invoiceNumber, amount, bankAccountNumber))));
+    }
+
+    private Optional<Call> importInvoices(Random random) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            int company = company(random);
+            LocalDate issueDate = issueDate(random);
+            List<InvoiceItem> items = items(random);
+            body.append(write(new CreateNewInvoiceCommand(invoiceNumber(), issueDate, issueDate.plusDays(30), PaymentStatus.UNPAYED, items,
+                    amount(items), BenchmarkDataSeeder.companyName(company), BenchmarkDataSeeder.vatNumber(company),
+                    BenchmarkDataSeeder.bankAccountNumber(company)))).append('\n');
+        }
+        return Optional.of(new Call(request("/api/invoices/batch")
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build()));
+    }
+
+    /**
+     * A statement paying up to five of the invoices created by the run.
+     */
+    private Optional<Call> reconcileStatement() {
+        StringBuilder body = new StringBuilder("bookingDate,invoiceNumber,amount,bankAccountNumber\n");
+        List<Long> paid = new ArrayList<>();
+        CreatedInvoice invoice;
+        while (paid.size() < 5 && (invoice = unpaidInvoices.poll()) != null) {
+            body.append(LAST_ISSUE_DATE).append(',').append(invoice.getInvoiceNumber()).append(',')
+                    .append(invoice.getAmount()).append(',').append(invoice.getBankAccountNumber()).append('\n');
+            paid.add(invoice.getId());
+        }
+        if (paid.isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(new Call(request("/api/invoices/payment/statement")
+                .header("Content-Type", "text/csv")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build(), response -> paidInvoiceIds.addAll(paid)));
+    }
+
+    private int company(Random random) {
+        return BenchmarkDataSeeder.skewedCompany(random, companyCount);
+    }
+
+    private String invoiceNumber() {
+        return "LOAD-" + sequence.incrementAndGet();
+    }
+
+    private static LocalDate issueDate(Random random) {
+        return LAST_ISSUE_DATE.minusDays(random.nextInt(3 * 365));
+    }
+
+    private static String bankAccountNumber(Random random) {
+        return String.format("%08d-%08d-99999999", random.nextInt(100_000_000), random.nextInt(100_000_000));
+    }
+
+    private static List<InvoiceItem> items(Random random) {
+        List<InvoiceItem> items = new ArrayList<>();
+        for (int i = 1 + random.nextInt(5); i > 0; i--) {
+            int pieces = 1 + random.nextInt(5);
+            items.add(new InvoiceItem(BenchmarkDataSeeder.ITEM_NAMES[random.nextInt(BenchmarkDataSeeder.ITEM_NAMES.length)],
+                    pieces, pieces * (100 + random.nextInt(10000))));
+        }
+        return items;
+    }
+
+    private static int amount(List<InvoiceItem> items) {
+        return items.stream().mapToInt(InvoiceItem::getPriceTotal).sum();
+    }
+
+    private long readId(String body) {
+        try {
+            return objectMapper.readTree(body).get("id").asLong();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void add(String name, int weight, Function<Random, Optional<Call>> call) {
+        scenarios.add(new Scenario(name, weight, call));
+    }
+
+    private Optional<Call> get(String path) {
+        return get(path, "application/json");
+    }
+
+    private Optional<Call> get(String path, String accept) {
+        return Optional.of(new Call(request(path).header("Accept", accept).GET().build()));
+    }
+
+    private HttpRequest json(HttpRequest.Builder builder, String method, Object body) {
+        return builder.header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(write(body)))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(timeout);
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    static class Scenario {
+        private String name;
+        private int weight;
+        private Function<Random, Optional<Call>> call;
+    }
+
+    /**
+     * A request, and what to remember of its successful response for the later requests.
+     */
+    @Getter
+    @AllArgsConstructor
+    static class Call {
+        private HttpRequest request;
+        private Consumer<String> onSuccess;
+
+        Call(HttpRequest request) {
+            this(request, body -> {});
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CreatedInvoice {
+        private long id;
+        private String invoiceNumber;
+        private int amount;
+        private String bankAccountNumber;
+    }
+}
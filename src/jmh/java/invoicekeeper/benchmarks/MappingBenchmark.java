@@ -0,0 +1,92 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.mappers.CompanyMapper;
+import invoicekeeper.mappers.CompanyMapperImpl;
+import invoicekeeper.mappers.InvoiceMapper;
+import invoicekeeper.mappers.InvoiceMapperImpl;
+import invoicekeeper.model.Company;
+import invoicekeeper.model.Invoice;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import org.modelmapper.ModelMapper;
+import org.modelmapper.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the reflective ModelMapper the service used to call with the generated MapStruct mappers,
+ * on the list shape returned by the invoice listing and on a company.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MappingBenchmark {
+    private static final Type INVOICE_DTO_LIST = new TypeToken<List<InvoiceDto>>(){}.getType();
+
+    @Param({"100"})
+    int invoiceCount;
+
+    @Param({"5"})
+    int itemsPerInvoice;
+
+    ModelMapper modelMapper;
+    InvoiceMapper invoiceMapper;
+    CompanyMapper companyMapper;
+    Company company;
+    List<Invoice> invoices;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        invoiceMapper = new InvoiceMapperImpl();
+        companyMapper = new CompanyMapperImpl();
+        company = new Company("Best Byte", "12345678-1-45", "12345876-86496452-11111111");
+        company.setId(1L);
+        for (int i = 0; i < invoiceCount; i++) {
+            Invoice invoice = new Invoice();
+            invoice.setId((long) i);
+            invoice.setInvoiceNumber("INV-" + i);
+            invoice.setIssueDate(LocalDate.of(2022, 1, 1).plusDays(i % 365));
+            invoice.setDueDate(invoice.getIssueDate().plusDays(30));
+            invoice.setPaymentStatus(i % 2 == 0 ? PaymentStatus.PAYED : PaymentStatus.UNPAYED);
+            List<InvoiceItem> items = new ArrayList<>();
+            for (int j = 0; j < itemsPerInvoice; j++) {
+                items.add(new InvoiceItem("item-" + j, j + 1, (j + 1) * 100));
+            }
+            invoice.setItems(items);
+            invoice.setAmount(items.stream().mapToInt(InvoiceItem::getPriceTotal).sum());
+            company.addInvoice(invoice);
+        }
+        invoices = company.getInvoices();
+    }
+
+    @Benchmark
+    public List<InvoiceDto> modelMapperInvoiceList() {
+        return modelMapper.map(invoices, INVOICE_DTO_LIST);
+    }
+
+    @Benchmark
+    public List<InvoiceDto> mapStructInvoiceList() {
+        return invoiceMapper.toDto(invoices);
+    }
+
+    @Benchmark
+    public CompanyDto modelMapperCompany() {
+        return modelMapper.map(company, CompanyDto.class);
+    }
+
+    @Benchmark
+    public CompanyDto mapStructCompany() {
+        return companyMapper.toDto(company);
+    }
+}
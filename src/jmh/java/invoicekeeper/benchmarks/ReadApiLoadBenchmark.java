@@ -0,0 +1,126 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.InvoiceKeeperApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The same GET requests over HTTP against the blocking endpoints and the reactive ones, many client threads at once
+ * against a Tomcat with a limited worker pool. One score is one request/response; the body is read fully.
+ * <p>
+ * The H2 R2DBC driver runs every query synchronously on the calling thread, so on the default in-memory database the
+ * reactive endpoints measure nothing but overhead. For a meaningful comparison run it on MariaDB with
+ * -p mariadbDatabase=..., a database on localhost reached with the credentials of application.properties; it is
+ * created if missing, and emptied and seeded before the trial.
+ */
+@State(Scope.Benchmark)
+@Threads(64)
+public class ReadApiLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"10000"})
+        int invoiceCount;
+
+        @Param({"200"})
+        int companyCount;
+
+        @Param({"20"})
+        int tomcatThreads;
+
+        @Param({""})
+        String mariadbDatabase;
+
+        ConfigurableApplicationContext context;
+        HttpClient client;
+        String baseUrl;
+
+        @Setup(Level.Trial)
+        public void start() {
+            context = new SpringApplicationBuilder(InvoiceKeeperApplication.class)
+                    .web(WebApplicationType.SERVLET)
+                    .profiles("benchmark")
+                    .properties("server.port=0", "server.tomcat.threads.max=" + tomcatThreads)
+                    .run(databaseArguments(mariadbDatabase));
+            BenchmarkDataSeeder seeder = new BenchmarkDataSeeder(context.getBean(JdbcTemplate.class), 42L);
+            seeder.clear();
+            seeder.seed(companyCount, invoiceCount);
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            context.close();
+        }
+
+        /**
+         * No arguments for the in-memory H2 database of the benchmark profile, the MariaDB connection otherwise.
+         */
+        static String[] databaseArguments(String mariadbDatabase) {
+            if (mariadbDatabase.isEmpty()) {
+                return new String[0];
+            }
+            return new String[]{
+                    "--spring.datasource.url=jdbc:mariadb://localhost/" + mariadbDatabase + "?createDatabaseIfNotExist=true",
+                    "--spring.datasource.username=root", "--spring.datasource.password=root456",
+                    "--spring.r2dbc.url=r2dbc:mariadb://localhost/" + mariadbDatabase,
+                    "--spring.r2dbc.username=root", "--spring.r2dbc.password=root456"};
+        }
+
+        String get(String path) throws IOException, InterruptedException {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Accept", "application/json").build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(path + " returned " + response.statusCode());
+            }
+            return response.body();
+        }
+
+        long randomInvoiceId() {
+            return 1 + ThreadLocalRandom.current().nextInt(invoiceCount);
+        }
+    }
+
+    @Benchmark
+    public String invoiceById(Server server) throws IOException, InterruptedException {
+        return server.get("/api/invoices/" + server.randomInvoiceId());
+    }
+
+    @Benchmark
+    public String reactiveInvoiceById(Server server) throws IOException, InterruptedException {
+        return server.get("/api/reactive/invoices/" + server.randomInvoiceId());
+    }
+
+    @Benchmark
+    public String invoiceListing(Server server) throws IOException, InterruptedException {
+        return server.get("/api/invoices?paymentStatus=UNPAYED&issuedAfter=2022-01-01&size=100");
+    }
+
+    @Benchmark
+    public String reactiveInvoiceListing(Server server) throws IOException, InterruptedException {
+        return server.get("/api/reactive/invoices?paymentStatus=UNPAYED&issuedAfter=2022-01-01&size=100");
+    }
+
+    @Benchmark
+    public String companySearch(Server server) throws IOException, InterruptedException {
+        return server.get("/api/companies?searchName=Company%2019");
+    }
+
+    @Benchmark
+    public String reactiveCompanySearch(Server server) throws IOException, InterruptedException {
+        return server.get("/api/reactive/companies?searchName=Company%2019");
+    }
+}
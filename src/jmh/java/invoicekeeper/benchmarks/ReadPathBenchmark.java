@@ -0,0 +1,50 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.dtos.InvoicePageDto;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The read methods behind the GET endpoints, each in request scope like an HTTP request. Compare the time and the
+ * gc.alloc.rate.norm (heap allocated per call) of two builds through target/jmh-result.json.
+ */
+@State(Scope.Benchmark)
+public class ReadPathBenchmark {
+    private static final int PAGE_SIZE = 100;
+
+    @Benchmark
+    public InvoiceDto getInvoiceById(BenchmarkDatabase database) {
+        long id = 1 + ThreadLocalRandom.current().nextInt(database.invoiceCount);
+        return database.inRequestScope(() -> database.service.getInvoiceById(id));
+    }
+
+    @Benchmark
+    public InvoicePageDto getAllInvoices(BenchmarkDatabase database) {
+        InvoiceFilter filter = new InvoiceFilter();
+        filter.setVatNumber(database.seeder.randomVatNumber());
+        return database.inRequestScope(() -> database.service.getAllInvoices(filter, Optional.empty(), PAGE_SIZE, false));
+    }
+
+    @Benchmark
+    public List<InvoiceDto> getInvoicesByItemName(BenchmarkDatabase database) {
+        String name = BenchmarkDataSeeder.ITEM_NAMES[ThreadLocalRandom.current().nextInt(BenchmarkDataSeeder.ITEM_NAMES.length)];
+        return database.inRequestScope(() -> database.service.getInvoicesByItemName(name, 0, 20));
+    }
+
+    @Benchmark
+    public CompanyDto getCompanyById(BenchmarkDatabase database) {
+        long id = 1 + ThreadLocalRandom.current().nextInt(database.companyCount);
+        return database.inRequestScope(() -> database.service.getCompanyById(id));
+    }
+
+    @Benchmark
+    public List<CompanyDto> findAllCompanies(BenchmarkDatabase database) {
+        return database.inRequestScope(() -> database.service.findAllCompanies(Optional.empty()));
+    }
+}
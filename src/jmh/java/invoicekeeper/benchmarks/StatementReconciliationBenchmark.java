@@ -0,0 +1,58 @@
+package invoicekeeper.benchmarks;
+
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReconciliationReportDto;
+import invoicekeeper.service.StatementReconciliationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paying the same invoices from a bank statement and through the single payment endpoint's service call,
+ * one score being one whole statement of statementSize transfers. The unpaid invoices are imported before every call.
+ */
+@State(Scope.Benchmark)
+public class StatementReconciliationBenchmark {
+    private final AtomicLong invoiceSequence = new AtomicLong();
+
+    @Param({"1000"})
+    int statementSize;
+
+    private List<PayInvoiceCommand> payments;
+    private byte[] csv;
+
+    @Setup(Level.Invocation)
+    public void prepareInvoices(BenchmarkDatabase database) {
+        payments = new ArrayList<>(statementSize);
+        StringBuilder invoices = new StringBuilder();
+        StringBuilder statement = new StringBuilder("bookingDate,invoiceNumber,amount,bankAccountNumber\n");
+        for (int i = 0; i < statementSize; i++) {
+            BenchmarkDataSeeder.SeededInvoice existing = database.seeder.randomInvoice();
+            String invoiceNumber = "STATEMENT-" + invoiceSequence.incrementAndGet();
+            invoices.append(String.format("{\"invoiceNumber\":\"%s\",\"issueDate\":\"%s\",\"dueDate\":\"%s\",\"paymentStatus\":\"UNPAYED\"," +
+                            "\"items\":[{\"name\":\"RAM\",\"pieces\":1,\"priceTotal\":5000}],\"amount\":5000,\"companyName\":\"Benchmark company\"," +
+                            "\"vatNumber\":\"%s\",\"bankAccountNumber\":\"%s\"}%n",
+                    invoiceNumber, LocalDate.now().minusDays(1), LocalDate.now().plusDays(30), existing.getVatNumber(), existing.getBankAccountNumber()));
+            payments.add(new PayInvoiceCommand(invoiceNumber, 5000, existing.getBankAccountNumber()));
+            statement.append(LocalDate.now()).append(',').append(invoiceNumber).append(",5000,").append(existing.getBankAccountNumber()).append('\n');
+        }
+        database.importService.importNdjson(new ByteArrayInputStream(invoices.toString().getBytes(StandardCharsets.UTF_8)));
+        csv = statement.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ReconciliationReportDto reconcileStatement(BenchmarkDatabase database) {
+        return database.context.getBean(StatementReconciliationService.class).reconcileCsv(new ByteArrayInputStream(csv));
+    }
+
+    @Benchmark
+    public int oneByOne(BenchmarkDatabase database) {
+        payments.forEach(database.service::payInvoice);
+        return payments.size();
+    }
+}
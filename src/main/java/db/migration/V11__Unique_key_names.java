@@ -0,0 +1,42 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Gives the unique keys of the VAT numbers and invoice numbers the names a duplicate is recognized by. The keys were
+ * declared inline, so their generated names are looked up first; MariaDB drops a unique key as an index, H2 as a
+ * constraint.
+ */
+public class V11__Unique_key_names extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        boolean h2 = "H2".equals(connection.getMetaData().getDatabaseProductName());
+        String schema = h2 ? connection.getSchema() : connection.getCatalog();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+        rename(jdbcTemplate, h2, schema, "companies", "vat_number", "uk_companies_vat_number");
+        rename(jdbcTemplate, h2, schema, "invoices", "invoice_number", "uk_invoices_invoice_number");
+    }
+
+    private void rename(JdbcTemplate jdbcTemplate, boolean h2, String schema, String table, String column, String name) {
+        String generatedName = jdbcTemplate.queryForObject("select tc.constraint_name from information_schema.table_constraints tc " +
+                        "join information_schema.key_column_usage k on k.constraint_schema = tc.constraint_schema " +
+                        "and k.table_name = tc.table_name and k.constraint_name = tc.constraint_name " +
+                        "where tc.constraint_type = 'UNIQUE' and tc.table_schema = ? and tc.table_name = ? and k.column_name = ?",
+                String.class, schema, table, column);
+        if (h2) {
+            jdbcTemplate.execute("alter table " + table + " drop constraint \"" + generatedName + "\"");
+            jdbcTemplate.execute("alter table " + table + " add constraint " + name + " unique (" + column + ")");
+        } else {
+            jdbcTemplate.execute("alter table " + table + " drop index `" + generatedName + "`, " +
+                    "add constraint " + name + " unique (" + column + ")");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Creates the item name trigram index and fills it for the existing items. The trigrams are made the way Ngrams made
+ * them when this migration was written, copied here so a later change to the application can not change it.
+ */
+public class V5__Item_name_ngrams extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_NGRAM = "insert into item_name_ngrams (ngram, invoice_id) values (?, ?)";
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        jdbcTemplate.execute("CREATE TABLE item_name_ngrams (" +
+                "ngram VARCHAR(3) NOT NULL, " +
+                "invoice_id BIGINT NOT NULL, " +
+                "CONSTRAINT fk_item_name_ngrams_on_invoice FOREIGN KEY (invoice_id) REFERENCES invoices (invoice_id) ON DELETE CASCADE)");
+        jdbcTemplate.execute("CREATE INDEX idx_item_name_ngrams_ngram_invoice ON item_name_ngrams (ngram, invoice_id)");
+
+        List<Object[]> rows = new ArrayList<>();
+        Set<String> ngrams = new LinkedHashSet<>();
+        long[] invoiceId = {-1};
+        jdbcTemplate.query("select invoice_id, name_of_item from items_on_invoices order by invoice_id", rs -> {
+            long id = rs.getLong("invoice_id");
+            if (id != invoiceId[0]) {
+                addRows(rows, ngrams, invoiceId[0]);
+                invoiceId[0] = id;
+                if (rows.size() >= BATCH_SIZE) {
+                    jdbcTemplate.batchUpdate(INSERT_NGRAM, rows);
+                    rows.clear();
+                }
+            }
+            ngrams.addAll(ngrams(rs.getString("name_of_item")));
+        });
+        addRows(rows, ngrams, invoiceId[0]);
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NGRAM, rows);
+        }
+    }
+
+    private static void addRows(List<Object[]> rows, Set<String> ngrams, long invoiceId) {
+        for (String ngram : ngrams) {
+            rows.add(new Object[]{ngram, invoiceId});
+        }
+        ngrams.clear();
+    }
+
+    private static Set<String> ngrams(String name) {
+        String decomposed = Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        String padded = decomposed.replaceAll("\\p{M}", "") + "  ";
+        Set<String> ngrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            ngrams.add(padded.substring(i, i + 3));
+        }
+        return ngrams;
+    }
+}
@@ -0,0 +1,59 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates the company name prefix index and fills it for the existing companies. The tokens are made the way
+ * CompanyNameIndexRepository made them when this migration was written, copied here so a later change to the
+ * application can not change it.
+ */
+public class V8__Company_name_tokens extends BaseJavaMigration {
+    private static final int BATCH_SIZE = 1000;
+
+    private static final String INSERT_TOKEN = "insert into company_name_tokens (starts_name, token, company_id) values (?, ?, ?)";
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+        jdbcTemplate.execute("CREATE TABLE company_name_tokens (" +
+                "starts_name BOOLEAN NOT NULL, " +
+                "token VARCHAR(255) NOT NULL, " +
+                "company_id BIGINT NOT NULL, " +
+                "CONSTRAINT fk_company_name_tokens_on_company FOREIGN KEY (company_id) REFERENCES companies (company_id) ON DELETE CASCADE)");
+        jdbcTemplate.execute("CREATE INDEX idx_company_name_tokens_token ON company_name_tokens (starts_name, token, company_id)");
+
+        List<Object[]> rows = new ArrayList<>();
+        jdbcTemplate.query("select company_id, name_of_company from companies", rs -> {
+            List<String> tokens = tokens(rs.getString("name_of_company"));
+            for (int i = 0; i < tokens.size(); i++) {
+                rows.add(new Object[]{i == 0, tokens.get(i), rs.getLong("company_id")});
+            }
+            if (rows.size() >= BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(INSERT_TOKEN, rows);
+                rows.clear();
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TOKEN, rows);
+        }
+    }
+
+    private static List<String> tokens(String name) {
+        String decomposed = Normalizer.normalize(name.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        String normalized = decomposed.replaceAll("\\p{M}", "").trim().replaceAll("\\s+", " ");
+        List<String> tokens = new ArrayList<>();
+        tokens.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            tokens.add(normalized.substring(i + 1));
+        }
+        return tokens;
+    }
+}
@@ -1,31 +1,65 @@
 package invoicekeeper;
 
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
 import org.flywaydb.core.Flyway;
-import org.modelmapper.ModelMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.orm.jpa.JpaTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
 
 @SpringBootApplication
+@EnableConfigurationProperties(DataSourceProperties.class)
 public class InvoiceKeeperApplication {
 
 	public static void main(String[] args) {
 		SpringApplication.run(InvoiceKeeperApplication.class, args);
 	}
 
-	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
-	}
-
 	@Bean
 	public OpenAPI defineOpenApi() {
 		return new OpenAPI()
 				.info(new Info().version("0.9").title("Invoice Keeper API")
 						.description("Company and invoice register API"));
 	}
+
+	/**
+	 * Makes @Timed work on any bean, the service and the JDBC repositories are timed this way.
+	 */
+	@Bean
+	public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+		return new TimedAspect(meterRegistry);
+	}
+
+	/**
+	 * Spring Boot leaves out the JDBC data source when an R2DBC connection factory is present, but the writes and the
+	 * blocking endpoints still go through JPA and JDBC, so it is created here from the usual spring.datasource properties.
+	 * With a read replica it is the primary pool behind the routing data source.
+	 */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	/**
+	 * The reactive read path brings an R2DBC transaction manager as well, which would otherwise stop Spring Boot from
+	 * creating the JPA one; every @Transactional write still belongs to JPA.
+	 */
+	@Bean
+	@Primary
+	public JpaTransactionManager transactionManager(EntityManagerFactory entityManagerFactory) {
+		return new JpaTransactionManager(entityManagerFactory);
+	}
 }
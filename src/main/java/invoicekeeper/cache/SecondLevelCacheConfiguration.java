@@ -0,0 +1,69 @@
+package invoicekeeper.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Optional Hibernate second-level cache for companies, invoices and their collections, plus the query cache, switched
+ * on with invoicekeeper.second-level-cache.enabled. The regions are size bounded Caffeine caches created up front, a
+ * region missing from the settings fails the startup instead of getting an unbounded cache. Hibernate statistics are
+ * switched on with the cache and published as the hibernate.* metrics, hits, misses and puts by region included.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfiguration {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "invoicekeeper.second-level-cache.enabled", havingValue = "true")
+    public CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties) {
+        CaffeineCachingProvider provider = new CaffeineCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        for (Map.Entry<String, SecondLevelCacheProperties.Region> region : properties.getRegions().entrySet()) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setStoreByValue(false);
+            configuration.setMaximumSize(OptionalLong.of(region.getValue().getMaximumSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(region.getValue().getExpireAfterWrite().toNanos()));
+            cacheManager.createCache(region.getKey(), configuration);
+        }
+        // One entry per table, must never be evicted while the query cache is in use
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    /**
+     * Hibernate would pick up the JCache region factory from the classpath by itself, so the cache is switched off
+     * explicitly unless enabled.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(ObjectProvider<CacheManager> secondLevelCacheManager) {
+        return hibernateProperties -> {
+            CacheManager cacheManager = secondLevelCacheManager.getIfAvailable();
+            if (cacheManager == null) {
+                hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                return;
+            }
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            hibernateProperties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package invoicekeeper.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of the Hibernate second-level cache. Every cache region used by the entities and the cached queries has to
+ * be listed under regions, each bounded by its own number of entries.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("invoicekeeper.second-level-cache")
+public class SecondLevelCacheProperties {
+    private boolean enabled;
+    private Map<String, Region> regions = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Region {
+        private long maximumSize = 10_000;
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,39 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.ChangeEventDto;
+import invoicekeeper.service.ChangeEventService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/events")
+@AllArgsConstructor
+@Tag(name = "Change events")
+public class ChangeEventController {
+    private ChangeEventService service;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponse(responseCode = "200", description = "Change events streamed.")
+    @Operation(summary = "Stream the created, paid and deleted invoices and the created, updated and deleted companies as server-sent events.",
+            description = "The id of an event is its position in the feed, the event name its type. A client reconnecting with the " +
+                    "Last-Event-ID header, or the after parameter, gets the events it missed first. Without either, the stream " +
+                    "starts with the next change.")
+    public Flux<ServerSentEvent<ChangeEventDto>> streamEvents(
+            @RequestHeader(value = "Last-Event-ID", required = false) Optional<Long> lastEventId,
+            @Parameter(example = "0") @RequestParam Optional<Long> after) {
+        return service.getEvents(lastEventId.or(() -> after))
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(Long.toString(event.getId()))
+                        .event(event.getType().name())
+                        .build());
+    }
+}
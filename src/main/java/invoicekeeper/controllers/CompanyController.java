@@ -1,6 +1,7 @@
 package invoicekeeper.controllers;
 
 import invoicekeeper.dtos.*;
+import invoicekeeper.service.CompanyDeletionService;
 import invoicekeeper.service.InvoicingService;
 import invoicekeeper.validators.Violation;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,27 +9,40 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
+import org.springdoc.api.annotations.ParameterObject;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.zalando.problem.Problem;
 import org.zalando.problem.Status;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
 import java.net.URI;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @RestController
+@Validated
 @RequestMapping("/api/companies")
 @AllArgsConstructor
 @Tag(name = "Operations on companies")
 public class CompanyController {
+    static final String DEFAULT_SUGGEST_LIMIT = "10";
+    static final int MAX_SUGGEST_LIMIT = 50;
+
     private InvoicingService service;
+    private CompanyDeletionService deletionService;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -47,27 +61,74 @@ public class CompanyController {
     }
 
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ApiResponse(responseCode = "200", description = "Company found.")
+    @ApiResponse(responseCode = "304", description = "Company not changed since the version in the If-None-Match header.")
     @Operation(summary = "Finding a company by its ID.")
-    public CompanyDto findCompanyById(@Parameter(example = "2") @PathVariable("id") long id) {
-        return service.getCompanyById(id);
+    public ResponseEntity<CompanyDto> findCompanyById(@Parameter(example = "2") @PathVariable("id") long id, WebRequest request) {
+        String eTag = service.getCompanyETag(id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.getCompanyById(id));
+    }
+
+    @GetMapping("/{id}/invoices")
+    @ApiResponse(responseCode = "200", description = "Invoices of the company found.")
+    @Operation(summary = "List the invoices of a company.",
+            description = "Add parameters in the URL to filter for: invoices issued after date, overdue invoices, due date range, payment status. " +
+                    "Results are ordered by issue date and paged; pass the X-Next-Cursor header of a page as the cursor parameter to get the next page. " +
+                    "Archived invoices are only listed with includeArchived=true.")
+    public ResponseEntity<List<InvoiceDto>> findInvoicesOfCompany(@Parameter(example = "2") @PathVariable("id") long id,
+                                                                  @ParameterObject InvoiceStatusFilter filter, @RequestParam Optional<String> cursor,
+                                                                  @RequestParam(defaultValue = InvoiceController.DEFAULT_PAGE_SIZE) @Min(1) @Max(InvoiceController.MAX_PAGE_SIZE) int size,
+                                                                  @Parameter(description = InvoiceController.INCLUDE_ARCHIVED_DESCRIPTION)
+                                                                  @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                                  WebRequest request) {
+        String eTag = service.getCompanyInvoicePageETag(id, filter, cursor, size, includeArchived);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        InvoicePageDto page = service.getInvoicesOfCompany(id, filter, cursor, size, includeArchived);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (page.getNextCursor() != null) {
+            response.header(InvoiceController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getInvoices());
     }
 
     @GetMapping("/vat-number/{vat}")
-    @ResponseStatus(HttpStatus.OK)
     @ApiResponse(responseCode = "200", description = "Company found.")
+    @ApiResponse(responseCode = "304", description = "Company not changed since the version in the If-None-Match header.")
     @Operation(summary = "Finding a company by its VAT number.")
-    public CompanyDto findCompanyByVatNumber(@Parameter(example = "84512648-1-45") @PathVariable("vat") String vatNumber) {
-        return service.getCompanyByVatNumber(vatNumber);
+    public ResponseEntity<CompanyDto> findCompanyByVatNumber(@Parameter(example = "84512648-1-45") @PathVariable("vat") String vatNumber,
+                                                             WebRequest request) {
+        String eTag = service.getCompanyETagByVatNumber(vatNumber);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.getCompanyByVatNumber(vatNumber));
     }
 
     @GetMapping
-    @ResponseStatus(HttpStatus.OK)
     @ApiResponse(responseCode = "200", description = "Company found.")
     @Operation(summary = "Search for companies by name using a string of text.")
-    public List<CompanyDto> findAllCompanies(@Parameter(example = "Euro") @RequestParam Optional<String> searchName) {
-        return service.findAllCompanies(searchName);
+    public ResponseEntity<List<CompanyDto>> findAllCompanies(@Parameter(example = "Euro") @RequestParam Optional<String> searchName,
+                                                             WebRequest request) {
+        String eTag = service.getCompaniesETag(searchName);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.findAllCompanies(searchName));
+    }
+
+    @GetMapping("/suggest")
+    @ApiResponse(responseCode = "200", description = "Suggestions found.")
+    @Operation(summary = "Suggest companies for a name being typed.",
+            description = "Companies whose name starts with the text come first, then the ones with a later word starting with it, " +
+                    "ignoring case and accents. Only the id, name and VAT number are returned.")
+    public List<CompanySuggestionDto> suggestCompanies(@Parameter(example = "Eur") @RequestParam @NotBlank String q,
+                                                       @RequestParam(defaultValue = DEFAULT_SUGGEST_LIMIT) @Min(1) @Max(MAX_SUGGEST_LIMIT) int limit) {
+        return service.suggestCompanies(q, limit);
     }
 
     @PutMapping("/{id}")
@@ -79,11 +140,26 @@ public class CompanyController {
     }
 
     @DeleteMapping("/{id}")
-    @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiResponse(responseCode = "204", description = "Company with ID deleted.")
+    @ApiResponse(responseCode = "202", description = "Company with a large invoice history is being deleted in the background, " +
+            "the Location header points to the status of the deletion.")
     @Operation(summary = "Delete company by ID.")
-    public boolean deleteCompanyById(@Parameter(example = "1") @PathVariable("id") long id) {
-        return service.deleteCompanyById(id);
+    public ResponseEntity<CompanyDeletionJobDto> deleteCompanyById(@Parameter(example = "1") @PathVariable("id") long id) {
+        return deletionService.deleteCompanyById(id)
+                .map(job -> ResponseEntity.accepted()
+                        .location(ServletUriComponentsBuilder.fromCurrentContextPath()
+                                .path("/api/companies/deletions/{jobId}")
+                                .buildAndExpand(job.getId())
+                                .toUri())
+                        .body(job))
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    @ApiResponse(responseCode = "200", description = "Deletion job found.")
+    @Operation(summary = "Status and progress of a company deletion running in the background.")
+    public CompanyDeletionJobDto findDeletionJob(@PathVariable("jobId") UUID jobId) {
+        return deletionService.getDeletionJob(jobId);
     }
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
@@ -1,38 +1,70 @@
 package invoicekeeper.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import invoicekeeper.dtos.CreateNewInvoiceCommand;
 import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.dtos.InvoiceImportReportDto;
+import invoicekeeper.dtos.InvoicePageDto;
 import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReconciliationReportDto;
+import invoicekeeper.service.InvoiceExportService;
+import invoicekeeper.service.InvoiceImportService;
 import invoicekeeper.service.InvoicingService;
+import invoicekeeper.service.StatementReconciliationService;
 import invoicekeeper.validators.Violation;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.AllArgsConstructor;
-import org.springframework.format.annotation.DateTimeFormat;
+import org.springdoc.api.annotations.ParameterObject;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.zalando.problem.Problem;
 import org.zalando.problem.Status;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
+@Validated
 @RequestMapping("/api/invoices")
 @AllArgsConstructor
 @Tag(name = "Operations on invoices")
 public class InvoiceController {
+    static final String NDJSON_VALUE = "application/x-ndjson";
+    private static final String CSV_VALUE = "text/csv";
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DEFAULT_PAGE_SIZE = "100";
+    static final int MAX_PAGE_SIZE = 1000;
+    static final String DEFAULT_SEARCH_PAGE_SIZE = "20";
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+    static final String INCLUDE_ARCHIVED_DESCRIPTION = "List the archived invoices too, the whole invoice history.";
+
     private InvoicingService service;
+    private InvoiceImportService importService;
+    private InvoiceExportService exportService;
+    private StatementReconciliationService reconciliationService;
+    private ObjectMapper objectMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
@@ -43,32 +75,97 @@ public class InvoiceController {
         return service.saveNewInvoice(command);
     }
 
+    @PostMapping(value = "/batch", consumes = NDJSON_VALUE)
+    @ApiResponse(responseCode = "200", description = "Import finished, see the result of each record.")
+    @Operation(summary = "Import invoices from newline delimited JSON.",
+            description = "Every line is an invoice in the same format as for saving a new invoice. Valid records are saved in batches, " +
+                    "records with errors or an already existing invoice number are skipped and listed in the report.")
+    public InvoiceImportReportDto importInvoicesFromNdjson(InputStream body) {
+        return importService.importNdjson(body);
+    }
+
+    @PostMapping(value = "/batch", consumes = CSV_VALUE)
+    @ApiResponse(responseCode = "200", description = "Import finished, see the result of each record.")
+    @Operation(summary = "Import invoices from CSV.",
+            description = "Header line: invoiceNumber,issueDate,dueDate,paymentStatus,amount,companyName,vatNumber,bankAccountNumber,itemName,pieces,priceTotal. " +
+                    "One line for each item, consecutive lines with the same invoice number make up one invoice.")
+    public InvoiceImportReportDto importInvoicesFromCsv(InputStream body) {
+        return importService.importCsv(body);
+    }
+
     @GetMapping("/{id}")
-    @ResponseStatus(HttpStatus.OK)
     @ApiResponse(responseCode = "200", description = "Invoice found.")
+    @ApiResponse(responseCode = "304", description = "Invoice not changed since the version in the If-None-Match header.")
     @Operation(summary = "Find an invoice by id.")
-    public InvoiceDto getInvoiceById(@Parameter(example = "3") @PathVariable("id") long id) {
-        return service.getInvoiceById(id);
+    public ResponseEntity<InvoiceDto> getInvoiceById(@Parameter(example = "3") @PathVariable("id") long id, WebRequest request) {
+        String eTag = service.getInvoiceETag(id);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(service.getInvoiceById(id));
     }
 
-    @GetMapping()
-    @ResponseStatus(HttpStatus.OK)
+    @GetMapping
     @ApiResponse(responseCode = "200", description = "Invoice found.")
     @Operation(summary = "Find invoice by parameters.",
-            description = "Add paramteres in the URL to filter for: company name, VAT number, invoices issued after date, overdue invoices.")
-    public List<InvoiceDto> getAllInvoices(@RequestParam Optional<String> companyName, @RequestParam Optional<String> vatNumber,
-                                           @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd") Optional<LocalDate> issuedAfter,
-                                           @RequestParam Optional<String> isOverDue) {
-        return service.getAllInvoices(companyName, vatNumber, issuedAfter, isOverDue);
+            description = "Add paramteres in the URL to filter for: company name, VAT number, invoices issued after date, overdue invoices, " +
+                    "due date range, payment status. " +
+                    "Results are ordered by issue date and paged; pass the X-Next-Cursor header of a page as the cursor parameter to get the next page. " +
+                    "The ETag of a page changes when an invoice is added to, removed from or changed on it. " +
+                    "Archived invoices, paid and issued long ago, are only listed with includeArchived=true.")
+    public ResponseEntity<List<InvoiceDto>> getAllInvoices(@ParameterObject InvoiceFilter filter, @RequestParam Optional<String> cursor,
+                                                           @RequestParam(defaultValue = DEFAULT_PAGE_SIZE) @Min(1) @Max(MAX_PAGE_SIZE) int size,
+                                                           @Parameter(description = INCLUDE_ARCHIVED_DESCRIPTION)
+                                                           @RequestParam(defaultValue = "false") boolean includeArchived,
+                                                           WebRequest request) {
+        String eTag = service.getInvoicePageETag(filter, cursor, size, includeArchived);
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        InvoicePageDto page = service.getAllInvoices(filter, cursor, size, includeArchived);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(eTag);
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getInvoices());
+    }
+
+    @GetMapping(produces = NDJSON_VALUE)
+    @ApiResponse(responseCode = "200", description = "Invoices streamed.")
+    @Operation(summary = "Stream all invoices matching the parameters as newline delimited JSON.",
+            description = "Same filters as the paged listing, but every matching invoice is written to the response as soon as it is read from the database.")
+    public ResponseEntity<StreamingResponseBody> streamAllInvoices(@ParameterObject InvoiceFilter filter) {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+                service.streamAllInvoices(filter, dto -> writeValue(writer, dto));
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
+    }
+
+    @GetMapping(value = "/export", produces = CSV_VALUE)
+    @ApiResponse(responseCode = "200", description = "Invoices exported.")
+    @Operation(summary = "Export all invoices matching the parameters as CSV.",
+            description = "Same filters as the paged listing. The lines have the format of the CSV import, one line for each item, " +
+                    "and are written to the response while they are read from the database.")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@ParameterObject InvoiceFilter filter) {
+        StreamingResponseBody body = out -> exportService.exportCsv(filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(CSV_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("invoices.csv").build().toString())
+                .body(body);
     }
 
     @GetMapping("/find-item")
     @ResponseStatus(HttpStatus.OK)
     @ApiResponse(responseCode = "200", description = "Invoice found.")
     @Operation(summary = "Find invoices with given items on it.",
-            description = "Add name parameter to URL and find all invoices with the given item.")
-    public List<InvoiceDto> getAllInvoicesWithItem(@Parameter(example = "RAM") @RequestParam String itemName) {
-        return service.getInvoicesByItemName(itemName);
+            description = "Add name parameter to URL and find all invoices having an item whose name contains the text, ignoring case. " +
+                    "Invoices with an exact match come first, then the ones with a matching prefix.")
+    public List<InvoiceDto> getAllInvoicesWithItem(@Parameter(example = "RAM") @RequestParam String itemName,
+                                                   @RequestParam(defaultValue = "0") @Min(0) int page,
+                                                   @RequestParam(defaultValue = DEFAULT_SEARCH_PAGE_SIZE) @Min(1) @Max(MAX_SEARCH_PAGE_SIZE) int size) {
+        return service.getInvoicesByItemName(itemName, page, size);
     }
 
     @PutMapping("/payment")
@@ -79,6 +176,16 @@ public class InvoiceController {
         return service.payInvoice(command);
     }
 
+    @PostMapping(value = "/payment/statement", consumes = CSV_VALUE)
+    @ApiResponse(responseCode = "200", description = "Statement reconciled, see the result of each transfer.")
+    @Operation(summary = "Pay invoices from a bank statement.",
+            description = "Header line with invoiceNumber, amount and bankAccountNumber columns, one transfer per line, other columns are ignored. " +
+                    "Every transfer is checked like a single payment; already paid invoices, unknown invoice numbers and transfers with errors " +
+                    "are listed in the report.")
+    public ReconciliationReportDto reconcileStatement(InputStream body) {
+        return reconciliationService.reconcileCsv(body);
+    }
+
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     @ApiResponse(responseCode = "204", description = "Invoice with ID deleted.")
@@ -87,6 +194,14 @@ public class InvoiceController {
         return service.deleteInvoiceById(id);
     }
 
+    private void writeValue(SequenceWriter writer, InvoiceDto dto) {
+        try {
+            writer.write(dto);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Problem> handleValidationError(MethodArgumentNotValidException exception) {
         List<Violation> violations =
@@ -0,0 +1,43 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.service.ReactiveInvoicingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/reactive/companies")
+@AllArgsConstructor
+@Tag(name = "Non-blocking reads of companies")
+public class ReactiveCompanyController {
+    private ReactiveInvoicingService service;
+
+    @GetMapping("/{id}")
+    @ApiResponse(responseCode = "200", description = "Company found.")
+    @Operation(summary = "Finding a company by its ID.")
+    public Mono<CompanyDto> findCompanyById(@Parameter(example = "2") @PathVariable("id") long id) {
+        return service.getCompanyById(id);
+    }
+
+    @GetMapping("/vat-number/{vat}")
+    @ApiResponse(responseCode = "200", description = "Company found.")
+    @Operation(summary = "Finding a company by its VAT number.")
+    public Mono<CompanyDto> findCompanyByVatNumber(@Parameter(example = "84512648-1-45") @PathVariable("vat") String vatNumber) {
+        return service.getCompanyByVatNumber(vatNumber);
+    }
+
+    @GetMapping
+    @ApiResponse(responseCode = "200", description = "Company found.")
+    @Operation(summary = "Search for companies by name using a string of text.")
+    public Flux<CompanyDto> findAllCompanies(@Parameter(example = "Euro") @RequestParam Optional<String> searchName) {
+        return service.findAllCompanies(searchName);
+    }
+}
@@ -0,0 +1,71 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.service.ReactiveInvoicingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springdoc.api.annotations.ParameterObject;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@Validated
+@RequestMapping("/api/reactive/invoices")
+@AllArgsConstructor
+@Tag(name = "Non-blocking reads of invoices")
+public class ReactiveInvoiceController {
+    private ReactiveInvoicingService service;
+
+    @GetMapping("/{id}")
+    @ApiResponse(responseCode = "200", description = "Invoice found.")
+    @Operation(summary = "Find an invoice by id.")
+    public Mono<InvoiceDto> getInvoiceById(@Parameter(example = "3") @PathVariable("id") long id) {
+        return service.getInvoiceById(id);
+    }
+
+    @GetMapping
+    @ApiResponse(responseCode = "200", description = "Invoice found.")
+    @Operation(summary = "Find invoice by parameters.",
+            description = "Same filters and paging as /api/invoices; pass the X-Next-Cursor header of a page as the cursor parameter to get the next page.")
+    public Mono<ResponseEntity<List<InvoiceDto>>> getAllInvoices(@ParameterObject InvoiceFilter filter, @RequestParam Optional<String> cursor,
+                                                                 @RequestParam(defaultValue = InvoiceController.DEFAULT_PAGE_SIZE) @Min(1) @Max(InvoiceController.MAX_PAGE_SIZE) int size) {
+        return service.getAllInvoices(filter, cursor, size)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(InvoiceController.NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getInvoices());
+                });
+    }
+
+    @GetMapping(produces = InvoiceController.NDJSON_VALUE)
+    @ApiResponse(responseCode = "200", description = "Invoices streamed.")
+    @Operation(summary = "Stream all invoices matching the parameters as newline delimited JSON.",
+            description = "Invoices are read from the database only as fast as the client reads the response.")
+    public Flux<InvoiceDto> streamAllInvoices(@ParameterObject InvoiceFilter filter) {
+        return service.streamAllInvoices(filter);
+    }
+
+    @GetMapping("/find-item")
+    @ApiResponse(responseCode = "200", description = "Invoice found.")
+    @Operation(summary = "Find invoices with given items on it.",
+            description = "Same search and ranking as /api/invoices/find-item.")
+    public Flux<InvoiceDto> getAllInvoicesWithItem(@Parameter(example = "RAM") @RequestParam String itemName,
+                                                   @RequestParam(defaultValue = "0") @Min(0) int page,
+                                                   @RequestParam(defaultValue = InvoiceController.DEFAULT_SEARCH_PAGE_SIZE) @Min(1) @Max(InvoiceController.MAX_SEARCH_PAGE_SIZE) int size) {
+        return service.getInvoicesByItemName(itemName, page, size);
+    }
+}
@@ -0,0 +1,27 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.service.ReportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/reports")
+@AllArgsConstructor
+@Tag(name = "Reports")
+public class ReportController {
+    private ReportService service;
+
+    @GetMapping("/receivables")
+    @ResponseStatus(HttpStatus.OK)
+    @ApiResponse(responseCode = "200", description = "Receivables summed up.")
+    @Operation(summary = "Count and sum up the unpaid, overdue and paid invoices for each company and overall.",
+            description = "Overdue invoices are the unpaid ones due before today; they are included in the unpaid totals too.")
+    public ReceivablesReportDto getReceivables() {
+        return service.getReceivables();
+    }
+}
@@ -0,0 +1,75 @@
+package invoicekeeper.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Optional read replica, switched on with invoicekeeper.replica.url. The read-only transactions, the reads of
+ * InvoicingService, take their connections from the replica pool, every other transaction and statement from the
+ * primary one. A read-only method called from a write joins its transaction and reads the primary, so a write sees
+ * its own changes. Both pools report the usual hikaricp.* metrics, tagged with their pool name, and
+ * invoicekeeper.datasource.connections counts the connections handed out from each, the fallbacks included.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty("invoicekeeper.replica.url")
+public class ReadReplicaConfiguration {
+
+    /**
+     * Waits for a connection two seconds by default instead of the thirty of the primary, a read held up by an
+     * unreachable replica falls back to the primary soon enough.
+     */
+    @Bean
+    @ConfigurationProperties("invoicekeeper.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${invoicekeeper.replica.url}") String url,
+                                              @Value("${invoicekeeper.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${invoicekeeper.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setConnectionTimeout(Duration.ofSeconds(2).toMillis());
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource routingDataSource(@Qualifier("dataSource") DataSource primary, @Qualifier("replicaDataSource") DataSource replica,
+                                        @Value("${invoicekeeper.replica.fallback-to-primary:true}") boolean fallbackToPrimary,
+                                        @Value("${invoicekeeper.replica.retry-after:30s}") Duration retryAfter) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(primary, replica, fallbackToPrimary, retryAfter));
+    }
+
+    @Bean
+    public MeterBinder replicaRoutingMetrics(@Qualifier("routingDataSource") DataSource routingDataSource) throws SQLException {
+        return routingDataSource.unwrap(ReplicaRoutingDataSource.class)::bindTo;
+    }
+
+    /**
+     * Hibernate keeps the connection of a session until it is closed, for the whole request with the session open in
+     * the view. Releasing it after each transaction lets every transaction of a request pick its own pool.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer replicaConnectionHandlingCustomizer() {
+        return hibernateProperties -> hibernateProperties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
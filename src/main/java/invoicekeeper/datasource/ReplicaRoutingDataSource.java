@@ -0,0 +1,88 @@
+package invoicekeeper.datasource;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything else. Only works
+ * behind a lazy connection proxy, which asks for the connection at the first statement, after the transaction has
+ * been marked read-only. A replica that fails to give a connection is left alone for the retry time and the reads go
+ * to the primary meanwhile, or the failure is passed on when the fallback is switched off.
+ */
+@Slf4j
+class ReplicaRoutingDataSource extends AbstractDataSource implements MeterBinder {
+    private final DataSource primary;
+    private final DataSource replica;
+    private final boolean fallbackToPrimary;
+    private final Duration retryAfter;
+    private final LongAdder primaryConnections = new LongAdder();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder fallbackConnections = new LongAdder();
+    private volatile Instant replicaDownUntil = Instant.MIN;
+
+    ReplicaRoutingDataSource(DataSource primary, DataSource replica, boolean fallbackToPrimary, Duration retryAfter) {
+        this.primary = primary;
+        this.replica = replica;
+        this.fallbackToPrimary = fallbackToPrimary;
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            primaryConnections.increment();
+            return primary.getConnection();
+        }
+        if (fallbackToPrimary && Instant.now().isBefore(replicaDownUntil)) {
+            fallbackConnections.increment();
+            return primary.getConnection();
+        }
+        try {
+            Connection connection = replica.getConnection();
+            replicaConnections.increment();
+            return connection;
+        } catch (SQLException e) {
+            if (!fallbackToPrimary) {
+                throw e;
+            }
+            replicaDownUntil = Instant.now().plus(retryAfter);
+            log.warn("Read replica unavailable, reading from the primary for {}", retryAfter, e);
+            fallbackConnections.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("The pools are configured with their own credentials");
+    }
+
+    /**
+     * The counters are read by the registry, the meter registry itself binds the metrics of the data sources and
+     * cannot be a dependency of one.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "primary", primaryConnections);
+        counter(registry, "replica", replicaConnections);
+        counter(registry, "fallback", fallbackConnections);
+    }
+
+    private static void counter(MeterRegistry registry, String target, LongAdder connections) {
+        FunctionCounter.builder("invoicekeeper.datasource.connections", connections, LongAdder::sum)
+                .description("Connections handed out by the read replica routing, by the pool they were taken from.")
+                .tag("target", target)
+                .register(registry);
+    }
+}
@@ -0,0 +1,21 @@
+package invoicekeeper.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventDto {
+    private long id;
+    private ChangeEventType type;
+    private long companyId;
+    private Long invoiceId;
+    private String invoiceNumber;
+    private LocalDateTime createdAt;
+}
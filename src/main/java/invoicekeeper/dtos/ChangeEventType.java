@@ -0,0 +1,9 @@
+package invoicekeeper.dtos;
+
+/**
+ * What a change event is about. The invoices of a deleted company get no events of their own, COMPANY_DELETED stands
+ * for them too.
+ */
+public enum ChangeEventType {
+    INVOICE_CREATED, INVOICE_PAID, INVOICE_DELETED, COMPANY_CREATED, COMPANY_UPDATED, COMPANY_DELETED
+}
@@ -0,0 +1,21 @@
+package invoicekeeper.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanyDeletionJobDto {
+    private UUID id;
+    private long companyId;
+    private CompanyDeletionStatus status;
+    private long invoiceCount;
+    private long deletedInvoiceCount;
+    private String error;
+}
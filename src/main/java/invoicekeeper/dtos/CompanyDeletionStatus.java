@@ -0,0 +1,5 @@
+package invoicekeeper.dtos;
+
+public enum CompanyDeletionStatus {
+    RUNNING, COMPLETED, FAILED
+}
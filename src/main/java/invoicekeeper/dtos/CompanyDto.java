@@ -1,12 +1,12 @@
 package invoicekeeper.dtos;
 
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDate;
 
 @Getter
 @Setter
@@ -17,5 +17,13 @@ public class CompanyDto {
     private String companyName;
     private String vatNumber;
     private String bankAccountNumber;
-    private List<InvoiceDto> invoices = new ArrayList<>();
+
+    @Schema(description = "Number of invoices issued by the company.", example = "12")
+    private long invoiceCount;
+
+    @Schema(description = "Total amount of the unpaid invoices.", example = "15400")
+    private long openAmount;
+
+    @Schema(description = "Issue date of the latest invoice, empty if the company has no invoices.", example = "2022-06-15")
+    private LocalDate lastIssueDate;
 }
@@ -0,0 +1,16 @@
+package invoicekeeper.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable copy of the columns of a company, safe to keep outside of the persistence context.
+ */
+@Getter
+@AllArgsConstructor
+public class CompanySnapshot {
+    private final Long id;
+    private final String companyName;
+    private final String vatNumber;
+    private final String bankAccountNumber;
+}
@@ -0,0 +1,16 @@
+package invoicekeeper.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanySuggestionDto {
+    private Long id;
+    private String companyName;
+    private String vatNumber;
+}
@@ -0,0 +1,42 @@
+package invoicekeeper.dtos;
+
+import invoicekeeper.exceptions.InvalidCursorException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Keyset position in the invoice listing, which is ordered by issue date, then by id.
+ * Clients only see the encoded form, so the layout of the token can change freely.
+ */
+@Getter
+@AllArgsConstructor
+public class InvoiceCursor {
+    private static final String SEPARATOR = "|";
+
+    private LocalDate issueDate;
+    private long id;
+
+    public static InvoiceCursor of(InvoiceDto invoice) {
+        return new InvoiceCursor(invoice.getIssueDate(), invoice.getId());
+    }
+
+    public static InvoiceCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separatorIndex = decoded.indexOf(SEPARATOR);
+            return new InvoiceCursor(LocalDate.parse(decoded.substring(0, separatorIndex)),
+                    Long.parseLong(decoded.substring(separatorIndex + 1)));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException(token);
+        }
+    }
+
+    public String encode() {
+        String raw = issueDate + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,17 @@
+package invoicekeeper.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+public class InvoiceFilter extends InvoiceStatusFilter {
+    @Schema(description = "The company name contains the text.", example = "Euro")
+    private String companyName;
+
+    @Schema(description = "VAT number of the company.", example = "84512648-1-45")
+    private String vatNumber;
+}
@@ -0,0 +1,34 @@
+package invoicekeeper.dtos;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import invoicekeeper.model.PaymentStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * One line of a CSV invoice import or export. An invoice with several items spans consecutive lines repeating the
+ * invoice columns, one line for each item.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonPropertyOrder({"invoiceNumber", "issueDate", "dueDate", "paymentStatus", "amount", "companyName", "vatNumber",
+        "bankAccountNumber", "itemName", "pieces", "priceTotal"})
+public class InvoiceImportCsvRow {
+    private String invoiceNumber;
+    private LocalDate issueDate;
+    private LocalDate dueDate;
+    private PaymentStatus paymentStatus;
+    private int amount;
+    private String companyName;
+    private String vatNumber;
+    private String bankAccountNumber;
+    private String itemName;
+    private int pieces;
+    private int priceTotal;
+}
@@ -0,0 +1,29 @@
+package invoicekeeper.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceImportReportDto {
+    @Schema(description = "Number of invoices saved.", example = "99998")
+    private int imported;
+
+    @Schema(description = "Number of records not saved.", example = "2")
+    private int rejected;
+
+    private List<InvoiceImportResultDto> results = new ArrayList<>();
+
+    public static InvoiceImportReportDto of(List<InvoiceImportResultDto> results) {
+        int imported = (int) results.stream().filter(r -> r.getStatus() == InvoiceImportStatus.IMPORTED).count();
+        return new InvoiceImportReportDto(imported, results.size() - imported, results);
+    }
+}
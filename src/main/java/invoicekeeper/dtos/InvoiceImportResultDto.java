@@ -0,0 +1,28 @@
+package invoicekeeper.dtos;
+
+import invoicekeeper.validators.Violation;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceImportResultDto {
+    @Schema(description = "Line number of the record in the uploaded file.", example = "3")
+    private int record;
+
+    @Schema(description = "Invoice number of the record, if it could be read.", example = "THI9545")
+    private String invoiceNumber;
+
+    @Schema(description = "IMPORTED, REJECTED because of the violations, or FAILED while writing the batch the record belonged to.", example = "IMPORTED")
+    private InvoiceImportStatus status;
+
+    private List<Violation> violations = new ArrayList<>();
+}
@@ -0,0 +1,18 @@
+package invoicekeeper.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoicePageDto {
+    private List<InvoiceDto> invoices = new ArrayList<>();
+    private String nextCursor;
+}
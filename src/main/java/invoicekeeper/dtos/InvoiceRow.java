@@ -0,0 +1,40 @@
+package invoicekeeper.dtos;
+
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * One row of an invoice joined with its items, selected straight from the query without loading entities. The item
+ * columns are null for an invoice without items.
+ */
+@Getter
+@AllArgsConstructor
+public class InvoiceRow {
+    private final Long id;
+    private final String invoiceNumber;
+    private final LocalDate issueDate;
+    private final LocalDate dueDate;
+    private final PaymentStatus paymentStatus;
+    private final int amount;
+    private final String companyName;
+    private final String itemName;
+    private final Integer itemPieces;
+    private final Integer itemPriceTotal;
+
+    public InvoiceDto toDto() {
+        return new InvoiceDto(id, invoiceNumber, issueDate, dueDate, paymentStatus, new ArrayList<>(), amount, companyName);
+    }
+
+    public boolean hasItem() {
+        return itemName != null;
+    }
+
+    public InvoiceItem toItem() {
+        return new InvoiceItem(itemName, itemPieces, itemPriceTotal);
+    }
+}
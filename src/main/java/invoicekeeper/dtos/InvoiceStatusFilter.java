@@ -0,0 +1,38 @@
+package invoicekeeper.dtos;
+
+import invoicekeeper.model.PaymentStatus;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Filters on the dates and the payment status of invoices, available wherever invoices are listed.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceStatusFilter {
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @Schema(description = "Invoices issued after the date.", example = "2021-05-08")
+    private LocalDate issuedAfter;
+
+    @Schema(description = "yes: only invoices past their due date, no: only invoices not yet due.", example = "yes")
+    private String isOverDue;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @Schema(description = "Invoices due after the date.", example = "2022-01-01")
+    private LocalDate dueAfter;
+
+    @DateTimeFormat(pattern = "yyyy-MM-dd")
+    @Schema(description = "Invoices due before the date.", example = "2022-07-01")
+    private LocalDate dueBefore;
+
+    @Schema(description = "The payment status of the invoices.", example = "UNPAYED")
+    private PaymentStatus paymentStatus;
+}
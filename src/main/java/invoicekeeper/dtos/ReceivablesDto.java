@@ -0,0 +1,50 @@
+package invoicekeeper.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivablesDto {
+    @Schema(description = "ID of the company, empty for the overall totals.", example = "2")
+    private Long companyId;
+
+    @Schema(description = "Name of the company, empty for the overall totals.", example = "Euronics")
+    private String companyName;
+
+    @Schema(description = "VAT number of the company, empty for the overall totals.", example = "84512648-1-45")
+    private String vatNumber;
+
+    @Schema(description = "Number of unpaid invoices, overdue ones included.", example = "3")
+    private long unpaidCount;
+
+    @Schema(description = "Total amount of the unpaid invoices, overdue ones included.", example = "15400")
+    private long unpaidAmount;
+
+    @Schema(description = "Number of unpaid invoices past their due date.", example = "1")
+    private long overdueCount;
+
+    @Schema(description = "Total amount of the unpaid invoices past their due date.", example = "10000")
+    private long overdueAmount;
+
+    @Schema(description = "Number of paid invoices.", example = "5")
+    private long paidCount;
+
+    @Schema(description = "Total amount of the paid invoices.", example = "7200")
+    private long paidAmount;
+
+    public ReceivablesDto add(ReceivablesDto other) {
+        unpaidCount += other.unpaidCount;
+        unpaidAmount += other.unpaidAmount;
+        overdueCount += other.overdueCount;
+        overdueAmount += other.overdueAmount;
+        paidCount += other.paidCount;
+        paidAmount += other.paidAmount;
+        return this;
+    }
+}
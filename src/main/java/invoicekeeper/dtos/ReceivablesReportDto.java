@@ -0,0 +1,24 @@
+package invoicekeeper.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceivablesReportDto {
+    @Schema(description = "Invoices due before this day count as overdue.", example = "2022-06-20")
+    private LocalDate date;
+
+    private ReceivablesDto total;
+
+    private List<ReceivablesDto> companies = new ArrayList<>();
+}
@@ -0,0 +1,37 @@
+package invoicekeeper.dtos;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconciliationReportDto {
+    @Schema(description = "Number of transfers matched to an invoice, the invoice is paid.", example = "4870")
+    private int matched;
+
+    @Schema(description = "Number of transfers not accepted for their invoice.", example = "12")
+    private int rejected;
+
+    @Schema(description = "Number of transfers referring to an invoice number not in the database.", example = "3")
+    private int unknown;
+
+    private List<TransferResultDto> results = new ArrayList<>();
+
+    public static ReconciliationReportDto of(List<TransferResultDto> results) {
+        int matched = count(results, TransferStatus.MATCHED);
+        int unknown = count(results, TransferStatus.UNKNOWN);
+        return new ReconciliationReportDto(matched, results.size() - matched - unknown, unknown, results);
+    }
+
+    private static int count(List<TransferResultDto> results, TransferStatus status) {
+        return (int) results.stream().filter(r -> r.getStatus() == status).count();
+    }
+}
@@ -0,0 +1,29 @@
+package invoicekeeper.dtos;
+
+import invoicekeeper.validators.Violation;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResultDto {
+    @Schema(description = "Line number of the transfer in the uploaded statement.", example = "3")
+    private int record;
+
+    @Schema(description = "Invoice number the transfer refers to, if it could be read.", example = "XG45-12")
+    private String invoiceNumber;
+
+    @Schema(description = "MATCHED and paid, REJECTED because of the violations, UNKNOWN invoice number, " +
+            "or FAILED while writing the batch the transfer belonged to.", example = "MATCHED")
+    private TransferStatus status;
+
+    private List<Violation> violations = new ArrayList<>();
+}
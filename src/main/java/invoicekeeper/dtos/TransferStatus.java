@@ -0,0 +1,5 @@
+package invoicekeeper.dtos;
+
+public enum TransferStatus {
+    MATCHED, REJECTED, UNKNOWN, FAILED
+}
@@ -0,0 +1,50 @@
+package invoicekeeper.dtos;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Number of a list of rows and a digest of their ids and versions in order: it changes whenever a row is added,
+ * removed, replaced, moved or written, without reading anything else of them.
+ */
+public final class VersionStamp {
+    private final MessageDigest digest;
+    private final ByteBuffer row = ByteBuffer.allocate(2 * Long.BYTES);
+    private long rowCount;
+
+    public VersionStamp() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static VersionStamp of(List<? extends Row> rows) {
+        VersionStamp stamp = new VersionStamp();
+        rows.forEach(row -> stamp.add(row.getId(), row.getVersion()));
+        return stamp;
+    }
+
+    public VersionStamp add(long id, long version) {
+        digest.update(row.clear().putLong(id).putLong(version).flip());
+        rowCount++;
+        return this;
+    }
+
+    public String toETag() {
+        return rowCount + "-" + HexFormat.of().formatHex(digest.digest(), 0, 16);
+    }
+
+    /**
+     * Id and version of a row, as read for a stamp.
+     */
+    public interface Row {
+        long getId();
+
+        long getVersion();
+    }
+}
@@ -0,0 +1,14 @@
+package invoicekeeper.exceptions;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+import java.util.UUID;
+
+public class CompanyDeletionJobNotFoundException extends AbstractThrowableProblem {
+    public CompanyDeletionJobNotFoundException(UUID id) {
+        super(URI.create("companies/deletion-job-not-found"),
+                "Not found.", Status.NOT_FOUND, String.format("Company deletion job not found by id: %s", id));
+    }
+}
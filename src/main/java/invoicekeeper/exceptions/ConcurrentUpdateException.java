@@ -0,0 +1,14 @@
+package invoicekeeper.exceptions;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+public class ConcurrentUpdateException extends AbstractThrowableProblem {
+    public ConcurrentUpdateException(int attempts) {
+        super(URI.create("concurrent-update"),
+                "Concurrent update.", Status.CONFLICT,
+                String.format("The data was changed by concurrent requests during all %d attempts, try again later.", attempts));
+    }
+}
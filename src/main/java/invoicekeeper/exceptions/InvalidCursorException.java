@@ -0,0 +1,13 @@
+package invoicekeeper.exceptions;
+
+import org.zalando.problem.AbstractThrowableProblem;
+import org.zalando.problem.Status;
+
+import java.net.URI;
+
+public class InvalidCursorException extends AbstractThrowableProblem {
+    public InvalidCursorException(String cursor) {
+        super(URI.create("invoices/invalid-cursor"),
+                "Invalid cursor.", Status.BAD_REQUEST, String.format("The cursor %s is not valid.", cursor));
+    }
+}
@@ -0,0 +1,20 @@
+package invoicekeeper.mappers;
+
+import invoicekeeper.dtos.AddNewCompanyCommand;
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.model.Company;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface CompanyMapper {
+    @Mapping(target = "invoiceCount", ignore = true)
+    @Mapping(target = "openAmount", ignore = true)
+    @Mapping(target = "lastIssueDate", ignore = true)
+    CompanyDto toDto(Company company);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "invoices", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Company toEntity(AddNewCompanyCommand command);
+}
@@ -0,0 +1,31 @@
+package invoicekeeper.mappers;
+
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.model.Invoice;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface InvoiceMapper {
+    @Mapping(target = "companyName", source = "company.companyName")
+    InvoiceDto toDto(Invoice invoice);
+
+    @Mapping(target = "companyName", source = "companyName")
+    InvoiceDto toDto(Invoice invoice, String companyName);
+
+    List<InvoiceDto> toDto(List<Invoice> invoices);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "company", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Invoice toEntity(CreateNewInvoiceCommand command);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "company", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    Invoice toEntity(AddNewInvoiceCommand command);
+}
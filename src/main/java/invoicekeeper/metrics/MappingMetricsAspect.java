@@ -0,0 +1,33 @@
+package invoicekeeper.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every call of the MapStruct mappers as invoicekeeper.mapping, tagged with the mapper and the method.
+ */
+@Aspect
+@Component
+@AllArgsConstructor
+public class MappingMetricsAspect {
+    private MeterRegistry meterRegistry;
+
+    @Around("execution(* invoicekeeper.mappers..*(..))")
+    public Object timeMapping(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            sample.stop(Timer.builder("invoicekeeper.mapping")
+                    .description("Mapping between entities, commands and DTOs.")
+                    .tag("mapper", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package invoicekeeper.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Wraps the JDBC data source so every statement, from JPA and from the JDBC repositories alike, passes the
+ * {@link SqlStatementListener}. The connection pool stays reachable through unwrap for its own metrics. A data source
+ * delegating to the pools, like the read replica routing, is left alone, its statements are seen in the pools.
+ */
+@Component
+public class SqlStatementDataSourcePostProcessor implements BeanPostProcessor {
+    private final SqlStatementListener listener;
+
+    public SqlStatementDataSourcePostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                               @Value("${invoicekeeper.sql.slow-query-threshold:500ms}") Duration slowQueryThreshold,
+                                               @Value("${invoicekeeper.sql.log-sample-rate:0}") double logSampleRate) {
+        this.listener = new SqlStatementListener(meterRegistryProvider, slowQueryThreshold, logSampleRate);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource) && !(bean instanceof DelegatingDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, dataSource)
+                    .listener(listener)
+                    .build();
+        }
+        return bean;
+    }
+}
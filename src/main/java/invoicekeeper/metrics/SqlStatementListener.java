@@ -0,0 +1,76 @@
+package invoicekeeper.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.QueryType;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.QueryUtils;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Times every JDBC statement as invoicekeeper.sql, tagged with the statement type and whether it was a batch. Statements
+ * slower than the threshold are logged as warnings, a random sample of the others at info level, both through the
+ * invoicekeeper.sql logger. Only the SQL is logged, never the parameters.
+ */
+@Slf4j(topic = "invoicekeeper.sql")
+class SqlStatementListener implements QueryExecutionListener {
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final long slowQueryThresholdMillis;
+    private final double logSampleRate;
+    private volatile MeterRegistry meterRegistry;
+
+    SqlStatementListener(ObjectProvider<MeterRegistry> meterRegistryProvider, Duration slowQueryThreshold, double logSampleRate) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.slowQueryThresholdMillis = slowQueryThreshold.toMillis();
+        this.logSampleRate = logSampleRate;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // only the completed statements are measured
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long elapsed = execInfo.getElapsedTime();
+        QueryType type = queryInfoList.isEmpty() ? QueryType.OTHER : QueryUtils.getQueryType(queryInfoList.get(0).getQuery());
+        Timer.builder("invoicekeeper.sql")
+                .description("Execution of JDBC statements.")
+                .tag("type", type.name().toLowerCase())
+                .tag("batch", String.valueOf(execInfo.isBatch()))
+                .register(meterRegistry())
+                .record(elapsed, TimeUnit.MILLISECONDS);
+        if (elapsed >= slowQueryThresholdMillis) {
+            log.warn("Slow SQL ({} ms, {}): {}", elapsed, size(execInfo), sql(queryInfoList));
+        } else if (logSampleRate > 0 && ThreadLocalRandom.current().nextDouble() < logSampleRate) {
+            log.info("SQL ({} ms, {}): {}", elapsed, size(execInfo), sql(queryInfoList));
+        }
+    }
+
+    /**
+     * Resolved on the first statement: the data source, and with it this listener, is created before the registry.
+     */
+    private MeterRegistry meterRegistry() {
+        if (meterRegistry == null) {
+            meterRegistry = meterRegistryProvider.getObject();
+        }
+        return meterRegistry;
+    }
+
+    private String size(ExecutionInfo execInfo) {
+        return execInfo.isBatch() ? "batch of " + execInfo.getBatchSize() : "single";
+    }
+
+    private String sql(List<QueryInfo> queryInfoList) {
+        return queryInfoList.stream().map(QueryInfo::getQuery).collect(Collectors.joining("; "));
+    }
+}
@@ -0,0 +1,60 @@
+package invoicekeeper.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A paid invoice moved out of the invoices table by the archiving, with the id, number and version it had there.
+ * Only the archiving writes it, with JDBC.
+ */
+@Getter
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "invoices_archive")
+public class ArchivedInvoice {
+
+    @Id
+    @Column(name = "invoice_id")
+    private Long id;
+
+    @Column(name = "invoice_number")
+    private String invoiceNumber;
+
+    @Column(name = "date_of_issue")
+    private LocalDate issueDate;
+
+    @Column(name = "due_date")
+    private LocalDate dueDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "payment_status")
+    private PaymentStatus paymentStatus;
+
+    @ElementCollection
+    @CollectionTable(name = "items_on_invoices_archive", joinColumns = @JoinColumn(name = "invoice_id"))
+    private List<InvoiceItem> items = new ArrayList<>();
+
+    @Column(name = "amount_total")
+    private int amount;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "company_id")
+    private Company company;
+
+    @Column(name = "version")
+    private long version;
+
+    /**
+     * The invoice as it was before it was archived, detached.
+     */
+    public Invoice toInvoice() {
+        return new Invoice(id, invoiceNumber, issueDate, dueDate, paymentStatus, new ArrayList<>(items), amount, company, version);
+    }
+}
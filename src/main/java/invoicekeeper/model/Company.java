@@ -4,8 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -16,6 +20,7 @@ import java.util.Objects;
 @AllArgsConstructor
 @Entity
 @Table(name = "companies")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "companies")
 public class Company {
 
     @Id
@@ -32,10 +37,27 @@ public class Company {
     @Column(name = "bank_account_number")
     private String bankAccountNumber;
 
-    @OneToMany(mappedBy = "company", cascade = {CascadeType.PERSIST, CascadeType.REMOVE})
+    @OneToMany(mappedBy = "company", cascade = CascadeType.PERSIST)
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "company-invoices")
     @Column(name = "invoices")
     private List<Invoice> invoices = new ArrayList<>();
 
+    /**
+     * Number and latest issue date of the archived invoices of the company, kept up to date by the archiving only.
+     */
+    @Column(name = "archived_invoice_count", insertable = false, updatable = false)
+    private long archivedInvoiceCount;
+
+    @Column(name = "last_archived_issue_date", insertable = false, updatable = false)
+    private LocalDate lastArchivedIssueDate;
+
+    /**
+     * Also increased by every write of the invoices of the company, the summary of the company changes with them.
+     */
+    @Version
+    private long version;
+
     public Company(String companyName, String vatNumber, String bankAccountNumber) {
         this.companyName = companyName;
         this.vatNumber = vatNumber;
@@ -4,6 +4,9 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.time.LocalDate;
@@ -17,6 +20,7 @@ import java.util.Objects;
 @AllArgsConstructor
 @Entity
 @Table(name = "invoices")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "invoices")
 public class Invoice {
 
     @Id
@@ -38,6 +42,8 @@ public class Invoice {
     private PaymentStatus paymentStatus;
 
     @ElementCollection
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "invoice-items")
     @CollectionTable(name = "items_on_invoices", joinColumns = @JoinColumn(name = "invoice_id"))
     @Column(name = "items_ordered")
     private List<InvoiceItem> items = new ArrayList<>();
@@ -45,10 +51,13 @@ public class Invoice {
     @Column(name = "amount_total")
     private int amount;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "company_id")
     private Company company;
 
+    @Version
+    private long version;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,33 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.InvoiceRow;
+import invoicekeeper.model.ArchivedInvoice;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads of archived invoices, the same projections as {@link InvoiceRepository} reads from the hot invoices.
+ */
+@Repository
+public interface ArchivedInvoiceRepository extends JpaRepository<ArchivedInvoice, Long> {
+    String ARCHIVED_INVOICE_ROWS = "select new invoicekeeper.dtos.InvoiceRow(i.id, i.invoiceNumber, i.issueDate, i.dueDate, i.paymentStatus, " +
+            "i.amount, c.companyName, item.name, item.pieces, item.priceTotal) from ArchivedInvoice i join i.company c left join i.items item ";
+
+    @EntityGraph(attributePaths = "company")
+    Optional<ArchivedInvoice> findByInvoiceNumber(String invoiceNumber);
+
+    @Query(ARCHIVED_INVOICE_ROWS + "where i.id = :id")
+    List<InvoiceRow> findRowsById(long id);
+
+    @Query(ARCHIVED_INVOICE_ROWS + "where i.id in :ids")
+    List<InvoiceRow> findRowsByIds(Collection<Long> ids);
+
+    @Query("select i.version from ArchivedInvoice i where i.id = :id")
+    Optional<Long> findVersionById(long id);
+}
@@ -0,0 +1,60 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.ChangeEventType;
+import invoicekeeper.model.Company;
+import invoicekeeper.model.Invoice;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * The outbox of the change feed. Every write of invoices and companies records its events here in the same
+ * transaction, so an event is visible exactly when the change is committed.
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class ChangeEventRepository {
+    private static final String INSERT = "insert into change_events (event_type, company_id, invoice_id, invoice_number) " +
+            "values (:type, :companyId, :invoiceId, :invoiceNumber)";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void addInvoiceEvent(ChangeEventType type, Invoice invoice) {
+        jdbcTemplate.update(INSERT, invoiceEvent(type, invoice));
+    }
+
+    public void addInvoiceEvents(ChangeEventType type, Collection<Invoice> invoices) {
+        jdbcTemplate.batchUpdate(INSERT, invoices.stream()
+                .map(invoice -> invoiceEvent(type, invoice))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    public void addCompanyEvent(ChangeEventType type, long companyId) {
+        jdbcTemplate.update(INSERT, companyEvent(type, companyId));
+    }
+
+    public void addCompanyEvents(ChangeEventType type, Collection<Company> companies) {
+        jdbcTemplate.batchUpdate(INSERT, companies.stream()
+                .map(company -> companyEvent(type, company.getId()))
+                .toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource invoiceEvent(ChangeEventType type, Invoice invoice) {
+        return new MapSqlParameterSource("type", type.name())
+                .addValue("companyId", invoice.getCompany().getId())
+                .addValue("invoiceId", invoice.getId())
+                .addValue("invoiceNumber", invoice.getInvoiceNumber());
+    }
+
+    private MapSqlParameterSource companyEvent(ChangeEventType type, long companyId) {
+        return new MapSqlParameterSource("type", type.name())
+                .addValue("companyId", companyId)
+                .addValue("invoiceId", null)
+                .addValue("invoiceNumber", null);
+    }
+}
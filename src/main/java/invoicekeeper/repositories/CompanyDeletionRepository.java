@@ -0,0 +1,66 @@
+package invoicekeeper.repositories;
+
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Set-based deletion of a company and its invoices, a chunk of invoice ids at a time, without loading entities. The
+ * item name n-grams of the invoices, the name tokens and the receivables of the company, and the items of the archived
+ * invoices are removed by their foreign keys (ON DELETE CASCADE).
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class CompanyDeletionRepository {
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Optional<String> findVatNumber(long companyId) {
+        return jdbcTemplate.queryForList("select vat_number from companies where company_id = :companyId",
+                        new MapSqlParameterSource("companyId", companyId), String.class).stream()
+                .findFirst();
+    }
+
+    /**
+     * Number of the hot and the archived invoices of the company.
+     */
+    public long countInvoices(long companyId) {
+        return jdbcTemplate.queryForObject("select (select count(*) from invoices where company_id = :companyId) + " +
+                        "(select count(*) from invoices_archive where company_id = :companyId)",
+                new MapSqlParameterSource("companyId", companyId), Long.class);
+    }
+
+    public List<Long> findInvoiceIds(long companyId, int limit) {
+        return jdbcTemplate.queryForList("select invoice_id from invoices where company_id = :companyId order by invoice_id limit :limit",
+                new MapSqlParameterSource("companyId", companyId).addValue("limit", limit), Long.class);
+    }
+
+    public void deleteInvoices(Collection<Long> invoiceIds) {
+        if (!invoiceIds.isEmpty()) {
+            MapSqlParameterSource ids = new MapSqlParameterSource("ids", invoiceIds);
+            jdbcTemplate.update("delete from items_on_invoices where invoice_id in (:ids)", ids);
+            jdbcTemplate.update("delete from invoices where invoice_id in (:ids)", ids);
+        }
+    }
+
+    public List<Long> findArchivedInvoiceIds(long companyId, int limit) {
+        return jdbcTemplate.queryForList("select invoice_id from invoices_archive where company_id = :companyId order by invoice_id limit :limit",
+                new MapSqlParameterSource("companyId", companyId).addValue("limit", limit), Long.class);
+    }
+
+    public void deleteArchivedInvoices(Collection<Long> invoiceIds) {
+        if (!invoiceIds.isEmpty()) {
+            jdbcTemplate.update("delete from invoices_archive where invoice_id in (:ids)", new MapSqlParameterSource("ids", invoiceIds));
+        }
+    }
+
+    public void deleteCompany(long companyId) {
+        jdbcTemplate.update("delete from companies where company_id = :companyId", new MapSqlParameterSource("companyId", companyId));
+    }
+}
@@ -0,0 +1,103 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.CompanySuggestionDto;
+import invoicekeeper.model.Company;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefix index over company names in the company_name_tokens table: the whole lower case, accent free name, and every
+ * rest of it from the second word on. A prefix lookup is an ordered range scan of the index that stops at the limit,
+ * whatever the number of companies. Rows are written when a company is saved and removed by the database together
+ * with the company (ON DELETE CASCADE); names never change.
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class CompanyNameIndexRepository {
+    private static final String MATCHES =
+            "select c.company_id, c.name_of_company, c.vat_number from company_name_tokens t " +
+            "join companies c on c.company_id = t.company_id " +
+            "where t.starts_name = :startsName and t.token like :prefix " +
+            "order by t.starts_name, t.token, t.company_id limit :limit";
+
+    private static final String INSERT_TOKEN =
+            "insert into company_name_tokens (starts_name, token, company_id) values (:startsName, :token, :companyId)";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void index(long companyId, String companyName) {
+        jdbcTemplate.batchUpdate(INSERT_TOKEN, rows(companyId, companyName).toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Indexes the companies, each of them must already have its id.
+     */
+    public void indexAll(Collection<Company> companies) {
+        List<MapSqlParameterSource> rows = new ArrayList<>();
+        for (Company company : companies) {
+            rows.addAll(rows(company.getId(), company.getCompanyName()));
+        }
+        jdbcTemplate.batchUpdate(INSERT_TOKEN, rows.toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Companies with a name starting with the text first, then the ones with a later word starting with it, both in
+     * the alphabetical order of the matching part of the name.
+     */
+    public List<CompanySuggestionDto> findSuggestions(String text, int limit) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        String prefix = Ngrams.escapeLike(normalized) + "%";
+        Map<Long, CompanySuggestionDto> suggestions = new LinkedHashMap<>();
+        findMatches(true, prefix, limit).forEach(suggestion -> suggestions.put(suggestion.getId(), suggestion));
+        if (suggestions.size() < limit) {
+            findMatches(false, prefix, limit).forEach(suggestion -> suggestions.putIfAbsent(suggestion.getId(), suggestion));
+        }
+        return new ArrayList<>(suggestions.values()).subList(0, Math.min(limit, suggestions.size()));
+    }
+
+    /**
+     * Tokens stored for a company name, the whole name first.
+     */
+    public static List<String> tokens(String companyName) {
+        String normalized = normalize(companyName);
+        List<String> tokens = new ArrayList<>();
+        tokens.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            tokens.add(normalized.substring(i + 1));
+        }
+        return tokens;
+    }
+
+    private List<CompanySuggestionDto> findMatches(boolean startsName, String prefix, int limit) {
+        return jdbcTemplate.query(MATCHES,
+                new MapSqlParameterSource("startsName", startsName).addValue("prefix", prefix).addValue("limit", limit),
+                (rs, rowNum) -> new CompanySuggestionDto(rs.getLong("company_id"), rs.getString("name_of_company"),
+                        rs.getString("vat_number")));
+    }
+
+    private List<MapSqlParameterSource> rows(long companyId, String companyName) {
+        List<String> tokens = tokens(companyName);
+        List<MapSqlParameterSource> rows = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            rows.add(new MapSqlParameterSource("startsName", i == 0).addValue("token", tokens.get(i)).addValue("companyId", companyId));
+        }
+        return rows;
+    }
+
+    private static String normalize(String text) {
+        return Ngrams.normalize(text).trim().replaceAll("\\s+", " ");
+    }
+}
@@ -1,17 +1,47 @@
 package invoicekeeper.repositories;
 
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CompanySnapshot;
+import invoicekeeper.dtos.VersionStamp;
 import invoicekeeper.model.Company;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+
 @Repository
 public interface CompanyRepository extends JpaRepository<Company, Long> {
-    @Query("select c from Company c where :searchName is null or c.companyName like concat('%',:searchName ,'%')")
-    List<Company> findAllCompanies(Optional<String> searchName);
+    String COMPANY_SUMMARY = "select new invoicekeeper.dtos.CompanyDto(c.id, c.companyName, c.vatNumber, c.bankAccountNumber, " +
+            "count(i) + c.archivedInvoiceCount, " +
+            "coalesce(sum(case when i.paymentStatus = invoicekeeper.model.PaymentStatus.UNPAYED then i.amount else 0 end), 0), " +
+            "case when max(i.issueDate) is null or max(i.issueDate) < c.lastArchivedIssueDate then c.lastArchivedIssueDate else max(i.issueDate) end) " +
+            "from Company c left join c.invoices i ";
+    String COMPANY_SUMMARY_GROUPING = " group by c.id, c.companyName, c.vatNumber, c.bankAccountNumber, c.archivedInvoiceCount, c.lastArchivedIssueDate";
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(COMPANY_SUMMARY + "where :searchName is null or c.companyName like concat('%',:searchName ,'%')" +
+            COMPANY_SUMMARY_GROUPING + " order by c.id")
+    List<CompanyDto> findCompanySummaries(Optional<String> searchName);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(COMPANY_SUMMARY + "where c.id = :id" + COMPANY_SUMMARY_GROUPING)
+    Optional<CompanyDto> findCompanySummaryById(long id);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select new invoicekeeper.dtos.CompanySnapshot(c.id, c.companyName, c.vatNumber, c.bankAccountNumber) " +
+            "from Company c where c.vatNumber = :vatNumber")
+    Optional<CompanySnapshot> findSnapshotByVatNumber(String vatNumber);
+
+    @Query("select c.version from Company c where c.id = :id")
+    Optional<Long> findVersionById(long id);
 
-    Optional<Company> findCompanyByVatNumber(String vatNumber);
+    @Query("select c.id as id, c.version as version from Company c " +
+            "where :searchName is null or c.companyName like concat('%',:searchName ,'%') order by c.id")
+    List<VersionStamp.Row> findVersions(Optional<String> searchName);
 }
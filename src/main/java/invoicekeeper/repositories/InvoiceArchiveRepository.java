@@ -0,0 +1,183 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.VersionStamp;
+import invoicekeeper.model.PaymentStatus;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Moves paid invoices to the archive tables and reads the invoice history, the hot and the archived invoices together.
+ * An archived invoice keeps its id, so a listing of both tables uses the same cursor as a listing of the hot invoices.
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class InvoiceArchiveRepository {
+    private static final String INVOICE_COLUMNS =
+            "invoice_id, invoice_number, date_of_issue, due_date, payment_status, amount_total, company_id, version";
+    private static final String ITEM_COLUMNS = "invoice_id, name_of_item, pieces_of_items, total_price";
+    private static final String HISTORY_PAGE = "select h.invoice_id, h.version from ((" + pageOf("invoices") + ") union all (" +
+            pageOf("invoices_archive") + ")) h order by h.date_of_issue, h.invoice_id limit :limit";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Locking read, so an invoice archived since the transaction read its snapshot is found too.
+     */
+    public boolean lockByInvoiceNumber(String invoiceNumber) {
+        return !jdbcTemplate.queryForList("select invoice_id from invoices_archive where invoice_number = :invoiceNumber for update",
+                new MapSqlParameterSource("invoiceNumber", invoiceNumber), Long.class).isEmpty();
+    }
+
+    /**
+     * Ids of the oldest paid invoices issued before the date, in the order of the issue date index.
+     */
+    public List<Long> findArchivableIds(LocalDate issuedBefore, int limit) {
+        return jdbcTemplate.queryForList("select invoice_id from invoices where date_of_issue < :issuedBefore and payment_status = :paid " +
+                        "order by date_of_issue, invoice_id limit :limit",
+                new MapSqlParameterSource("issuedBefore", issuedBefore)
+                        .addValue("paid", PaymentStatus.PAYED.name())
+                        .addValue("limit", limit), Long.class);
+    }
+
+    public List<Long> findCompanyIds(Collection<Long> invoiceIds) {
+        return jdbcTemplate.queryForList("select distinct company_id from invoices where invoice_id in (:ids) order by company_id",
+                new MapSqlParameterSource("ids", invoiceIds), Long.class);
+    }
+
+    /**
+     * Locks the invoices still archivable, the ones not deleted since they were found.
+     */
+    public List<ArchivableInvoice> lockArchivable(Collection<Long> invoiceIds, LocalDate issuedBefore) {
+        return jdbcTemplate.query("select invoice_id, company_id, date_of_issue from invoices " +
+                        "where invoice_id in (:ids) and date_of_issue < :issuedBefore and payment_status = :paid for update",
+                new MapSqlParameterSource("ids", invoiceIds)
+                        .addValue("issuedBefore", issuedBefore)
+                        .addValue("paid", PaymentStatus.PAYED.name()),
+                (rs, rowNum) -> new ArchivableInvoice(rs.getLong("invoice_id"), rs.getLong("company_id"),
+                        rs.getObject("date_of_issue", LocalDate.class)));
+    }
+
+    /**
+     * Copies the invoices with their items to the archive tables, then deletes them from the hot ones. Their item name
+     * n-grams are deleted by the foreign key, the item search covers the hot invoices only.
+     */
+    public void moveToArchive(Collection<Long> invoiceIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", invoiceIds);
+        jdbcTemplate.update("insert into invoices_archive (" + INVOICE_COLUMNS + ") select " + INVOICE_COLUMNS +
+                " from invoices where invoice_id in (:ids)", ids);
+        jdbcTemplate.update("insert into items_on_invoices_archive (" + ITEM_COLUMNS + ") select " + ITEM_COLUMNS +
+                " from items_on_invoices where invoice_id in (:ids)", ids);
+        jdbcTemplate.update("delete from items_on_invoices where invoice_id in (:ids)", ids);
+        jdbcTemplate.update("delete from invoices where invoice_id in (:ids)", ids);
+    }
+
+    /**
+     * Adds the moved invoices to the archived invoice counters of their companies, one statement per company.
+     */
+    public void addArchivedToCompanies(Collection<ArchivableInvoice> invoices) {
+        Map<Long, MapSqlParameterSource> changes = new LinkedHashMap<>();
+        for (ArchivableInvoice invoice : invoices) {
+            changes.merge(invoice.getCompanyId(), new MapSqlParameterSource("companyId", invoice.getCompanyId())
+                    .addValue("count", 1L)
+                    .addValue("lastIssueDate", invoice.getIssueDate()), this::sum);
+        }
+        jdbcTemplate.batchUpdate("update companies set archived_invoice_count = archived_invoice_count + :count, " +
+                "last_archived_issue_date = case when last_archived_issue_date is null or last_archived_issue_date < :lastIssueDate " +
+                "then :lastIssueDate else last_archived_issue_date end where company_id = :companyId",
+                changes.values().toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Deletes an archived invoice with its items, and recounts the archived invoices of its company.
+     */
+    public void deleteArchived(long invoiceId, long companyId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("invoiceId", invoiceId).addValue("companyId", companyId);
+        jdbcTemplate.update("delete from invoices_archive where invoice_id = :invoiceId", params);
+        jdbcTemplate.update("update companies set archived_invoice_count = archived_invoice_count - 1, " +
+                "last_archived_issue_date = (select max(a.date_of_issue) from invoices_archive a where a.company_id = :companyId) " +
+                "where company_id = :companyId", params);
+    }
+
+    /**
+     * Ids of a page of the invoice history, the hot and the archived invoices matching the filters, ordered by issue
+     * date. Each table is read along its own issue date index up to a page, then the two are merged.
+     */
+    public List<Long> findHistoryIds(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                     Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                     Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                                     Optional<LocalDate> afterIssueDate, Optional<Long> afterId, int limit) {
+        return jdbcTemplate.queryForList("select p.invoice_id from (" + HISTORY_PAGE + ") p",
+                historyParameters(companyId, companyName, vatNumber, issuedAfter, dueAfter, dueBefore, paymentStatus,
+                        afterIssueDate, afterId, limit), Long.class);
+    }
+
+    /**
+     * Version stamp of exactly the rows of the page findHistoryIds returns, in the same order.
+     */
+    public VersionStamp findHistoryVersionStamp(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                                Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                                Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                                                Optional<LocalDate> afterIssueDate, Optional<Long> afterId, int limit) {
+        VersionStamp stamp = new VersionStamp();
+        jdbcTemplate.query(HISTORY_PAGE,
+                historyParameters(companyId, companyName, vatNumber, issuedAfter, dueAfter, dueBefore, paymentStatus,
+                        afterIssueDate, afterId, limit),
+                rs -> {
+                    stamp.add(rs.getLong("invoice_id"), rs.getLong("version"));
+                });
+        return stamp;
+    }
+
+    private static String pageOf(String table) {
+        return "select i.invoice_id, i.date_of_issue, i.version from " + table + " i " +
+                "join companies c on c.company_id = i.company_id where " + InvoiceRepository.INVOICE_FILTER_SQL + " and " +
+                "(:afterIssueDate is null or i.date_of_issue > :afterIssueDate or (i.date_of_issue = :afterIssueDate and i.invoice_id > :afterId)) " +
+                "order by i.date_of_issue, i.invoice_id limit :limit";
+    }
+
+    private MapSqlParameterSource sum(MapSqlParameterSource a, MapSqlParameterSource b) {
+        LocalDate lastIssueDate = (LocalDate) a.getValue("lastIssueDate");
+        LocalDate other = (LocalDate) b.getValue("lastIssueDate");
+        return a.addValue("count", (Long) a.getValue("count") + (Long) b.getValue("count"))
+                .addValue("lastIssueDate", other.isAfter(lastIssueDate) ? other : lastIssueDate);
+    }
+
+    private MapSqlParameterSource historyParameters(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                                    Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                                    Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                                                    Optional<LocalDate> afterIssueDate, Optional<Long> afterId, int limit) {
+        return new MapSqlParameterSource("companyId", companyId.orElse(null))
+                .addValue("companyName", companyName.orElse(null))
+                .addValue("vatNumber", vatNumber.orElse(null))
+                .addValue("issuedAfter", issuedAfter.orElse(null))
+                .addValue("dueAfter", dueAfter.orElse(null))
+                .addValue("dueBefore", dueBefore.orElse(null))
+                .addValue("paymentStatus", paymentStatus.map(PaymentStatus::name).orElse(null))
+                .addValue("afterIssueDate", afterIssueDate.orElse(null))
+                .addValue("afterId", afterId.orElse(null))
+                .addValue("limit", limit);
+    }
+
+    /**
+     * An invoice locked for archiving, with the columns the archived counters of its company are updated from.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ArchivableInvoice {
+        private long id;
+        private long companyId;
+        private LocalDate issueDate;
+    }
+}
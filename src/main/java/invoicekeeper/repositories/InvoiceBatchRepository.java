@@ -0,0 +1,225 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.model.Company;
+import invoicekeeper.model.Invoice;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+/**
+ * Set-based lookups and JDBC batch statements used by the bulk invoice import and the bank statement reconciliation,
+ * bypassing the persistence context.
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class InvoiceBatchRepository {
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Set<String> findExistingInvoiceNumbers(Collection<String> invoiceNumbers) {
+        if (invoiceNumbers.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "select invoice_number from invoices where invoice_number in (:invoiceNumbers) " +
+                        "union all select invoice_number from invoices_archive where invoice_number in (:invoiceNumbers)",
+                new MapSqlParameterSource("invoiceNumbers", invoiceNumbers), String.class));
+    }
+
+    /**
+     * Numbers of the archived invoices among the ones just inserted, read with locks like
+     * InvoiceArchiveRepository.lockByInvoiceNumber.
+     */
+    public List<String> lockArchivedInvoiceNumbers(Collection<String> invoiceNumbers) {
+        return jdbcTemplate.queryForList("select invoice_number from invoices_archive where invoice_number in (:invoiceNumbers) for update",
+                new MapSqlParameterSource("invoiceNumbers", invoiceNumbers), String.class);
+    }
+
+    public Map<String, Long> findCompanyIdsByVatNumbers(Collection<String> vatNumbers) {
+        Map<String, Long> companyIds = new HashMap<>();
+        if (!vatNumbers.isEmpty()) {
+            jdbcTemplate.query("select company_id, vat_number from companies where vat_number in (:vatNumbers)",
+                    new MapSqlParameterSource("vatNumbers", vatNumbers),
+                    rs -> {
+                        companyIds.put(rs.getString("vat_number"), rs.getLong("company_id"));
+                    });
+        }
+        return companyIds;
+    }
+
+    public void insertCompanies(Collection<Company> companies) {
+        MapSqlParameterSource[] rows = companies.stream()
+                .map(company -> new MapSqlParameterSource()
+                        .addValue("companyName", company.getCompanyName())
+                        .addValue("vatNumber", company.getVatNumber())
+                        .addValue("bankAccountNumber", company.getBankAccountNumber()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("insert into companies (name_of_company, vat_number, bank_account_number) " +
+                "values (:companyName, :vatNumber, :bankAccountNumber)", rows);
+    }
+
+    /**
+     * Inserts the invoices with their items and sets the generated ids on them. The company of every invoice must
+     * already have its id.
+     */
+    public void insertInvoices(List<Invoice> invoices) {
+        MapSqlParameterSource[] invoiceRows = invoices.stream()
+                .map(invoice -> new MapSqlParameterSource()
+                        .addValue("invoiceNumber", invoice.getInvoiceNumber())
+                        .addValue("issueDate", invoice.getIssueDate())
+                        .addValue("dueDate", invoice.getDueDate())
+                        .addValue("paymentStatus", invoice.getPaymentStatus().name())
+                        .addValue("amount", invoice.getAmount())
+                        .addValue("companyId", invoice.getCompany().getId()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("insert into invoices (invoice_number, date_of_issue, due_date, payment_status, amount_total, company_id) " +
+                "values (:invoiceNumber, :issueDate, :dueDate, :paymentStatus, :amount, :companyId)", invoiceRows);
+
+        Map<String, Long> invoiceIds = findInvoiceIdsByNumbers(invoices.stream().map(Invoice::getInvoiceNumber).collect(Collectors.toList()));
+        List<MapSqlParameterSource> itemRows = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            invoice.setId(invoiceIds.get(invoice.getInvoiceNumber()));
+            for (InvoiceItem item : invoice.getItems()) {
+                itemRows.add(new MapSqlParameterSource()
+                        .addValue("invoiceId", invoice.getId())
+                        .addValue("name", item.getName())
+                        .addValue("pieces", item.getPieces())
+                        .addValue("priceTotal", item.getPriceTotal()));
+            }
+        }
+        jdbcTemplate.batchUpdate("insert into items_on_invoices (invoice_id, name_of_item, pieces_of_items, total_price) " +
+                "values (:invoiceId, :name, :pieces, :priceTotal)", itemRows.toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Finds the invoices with the given numbers, each with its company's id and bank account number but without items.
+     * The numbers not found among the hot invoices are looked up in the archive, so a transfer to an archived invoice
+     * is known as paid.
+     */
+    public Map<String, Invoice> findInvoicesByNumbers(Collection<String> invoiceNumbers) {
+        Map<String, Invoice> invoices = new HashMap<>();
+        if (!invoiceNumbers.isEmpty()) {
+            findInvoicesByNumbers("invoices", invoiceNumbers, invoices);
+        }
+        if (invoices.size() < invoiceNumbers.size()) {
+            Set<String> archivedNumbers = new HashSet<>(invoiceNumbers);
+            archivedNumbers.removeAll(invoices.keySet());
+            findInvoicesByNumbers("invoices_archive", archivedNumbers, invoices);
+        }
+        return invoices;
+    }
+
+    private void findInvoicesByNumbers(String table, Collection<String> invoiceNumbers, Map<String, Invoice> invoices) {
+        jdbcTemplate.query("select i.invoice_id, i.invoice_number, i.date_of_issue, i.due_date, i.payment_status, i.amount_total, " +
+                        "c.company_id, c.bank_account_number " +
+                        "from " + table + " i join companies c on c.company_id = i.company_id where i.invoice_number in (:invoiceNumbers)",
+                new MapSqlParameterSource("invoiceNumbers", invoiceNumbers),
+                rs -> {
+                    Company company = new Company();
+                    company.setId(rs.getLong("company_id"));
+                    company.setBankAccountNumber(rs.getString("bank_account_number"));
+                    Invoice invoice = new Invoice();
+                    invoice.setId(rs.getLong("invoice_id"));
+                    invoice.setInvoiceNumber(rs.getString("invoice_number"));
+                    invoice.setIssueDate(rs.getDate("date_of_issue").toLocalDate());
+                    invoice.setDueDate(rs.getDate("due_date").toLocalDate());
+                    invoice.setPaymentStatus(PaymentStatus.valueOf(rs.getString("payment_status")));
+                    invoice.setAmount(rs.getInt("amount_total"));
+                    invoice.setCompany(company);
+                    invoices.put(invoice.getInvoiceNumber(), invoice);
+                });
+    }
+
+    /**
+     * Marks the companies changed. Every writer of invoices calls this first, so the locked company rows keep the other
+     * writers of their invoices out until the transaction ends; they are locked in the same order by every writer,
+     * ahead of the shared locks the foreign key checks of the invoice inserts take.
+     */
+    public void incrementCompanyVersions(Collection<Long> companyIds) {
+        if (!companyIds.isEmpty()) {
+            jdbcTemplate.update("update companies set version = version + 1 where company_id in (:ids)",
+                    new MapSqlParameterSource("ids", companyIds));
+        }
+    }
+
+    /**
+     * Marks the company changed like incrementCompanyVersions, but only while its bank account number is still the given
+     * one. Returns false when a concurrent update has changed the number since it was read.
+     */
+    public boolean incrementCompanyVersion(long companyId, String bankAccountNumber) {
+        return jdbcTemplate.update("update companies set version = version + 1 " +
+                        "where company_id = :companyId and bank_account_number = :bankAccountNumber",
+                new MapSqlParameterSource("companyId", companyId).addValue("bankAccountNumber", bankAccountNumber)) != 0;
+    }
+
+    /**
+     * Marks the companies changed like incrementCompanyVersion, each only while its bank account number is still the
+     * given one. The rows are locked in the order of their ids and the numbers compared before the update, as a batch
+     * of bulk statements does not tell the rows it changed. Returns the ids of the companies whose number has been
+     * changed by a concurrent update since it was read; those are left unmarked.
+     */
+    public Set<Long> incrementCompanyVersions(SortedMap<Long, String> bankAccountNumbers) {
+        Set<Long> unchanged = new HashSet<>();
+        jdbcTemplate.query("select company_id, bank_account_number from companies where company_id in (:ids) " +
+                        "order by company_id for update",
+                new MapSqlParameterSource("ids", bankAccountNumbers.keySet()),
+                rs -> {
+                    long companyId = rs.getLong("company_id");
+                    if (rs.getString("bank_account_number").equals(bankAccountNumbers.get(companyId))) {
+                        unchanged.add(companyId);
+                    }
+                });
+        incrementCompanyVersions(unchanged);
+        Set<Long> changed = new HashSet<>(bankAccountNumbers.keySet());
+        changed.removeAll(unchanged);
+        return changed;
+    }
+
+    /**
+     * Sets the invoices paid, returning the ones that were still unpaid. The unpaid ones are locked and selected
+     * before the update, as a batch of bulk statements does not tell the rows it changed; an invoice paid by a
+     * concurrent request in the meantime is left out.
+     */
+    public List<Invoice> markPaid(List<Invoice> invoices) {
+        Set<Long> unpaidIds = new HashSet<>(jdbcTemplate.queryForList("select invoice_id from invoices " +
+                        "where invoice_id in (:ids) and payment_status = 'UNPAYED' order by invoice_id for update",
+                new MapSqlParameterSource("ids", invoices.stream().map(Invoice::getId).collect(Collectors.toSet())), Long.class));
+        if (unpaidIds.isEmpty()) {
+            return List.of();
+        }
+        jdbcTemplate.update("update invoices set payment_status = 'PAYED', version = version + 1 where invoice_id in (:ids)",
+                new MapSqlParameterSource("ids", unpaidIds));
+        List<Invoice> paid = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            if (unpaidIds.contains(invoice.getId())) {
+                invoice.setPaymentStatus(PaymentStatus.PAYED);
+                paid.add(invoice);
+            }
+        }
+        return paid;
+    }
+
+    private Map<String, Long> findInvoiceIdsByNumbers(Collection<String> invoiceNumbers) {
+        Map<String, Long> invoiceIds = new HashMap<>();
+        jdbcTemplate.query("select invoice_id, invoice_number from invoices where invoice_number in (:invoiceNumbers)",
+                new MapSqlParameterSource("invoiceNumbers", invoiceNumbers),
+                rs -> {
+                    invoiceIds.put(rs.getString("invoice_number"), rs.getLong("invoice_id"));
+                });
+        return invoiceIds;
+    }
+}
@@ -0,0 +1,68 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.InvoiceImportCsvRow;
+import invoicekeeper.model.PaymentStatus;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Reads the invoices with their items and companies for the export, one joined row per item, through a forward-only
+ * cursor: the driver fetches the result in rounds of the fetch size instead of all at once, and every row is handed on
+ * before the next one is read.
+ */
+@Repository
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class InvoiceExportRepository {
+    private static final int FETCH_SIZE = 500;
+    private static final String EXPORT_ROWS = "select i.invoice_number, i.date_of_issue, i.due_date, i.payment_status, i.amount_total, " +
+            "c.name_of_company, c.vat_number, c.bank_account_number, item.name_of_item, item.pieces_of_items, item.total_price " +
+            "from invoices i join companies c on c.company_id = i.company_id " +
+            "left join items_on_invoices item on item.invoice_id = i.invoice_id " +
+            "where " + InvoiceRepository.INVOICE_FILTER_SQL + " order by i.date_of_issue, i.invoice_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public InvoiceExportRepository(DataSource dataSource) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(dataSource);
+        streamingTemplate.setFetchSize(FETCH_SIZE);
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+    }
+
+    /**
+     * Passes every row to the consumer in the order of the issue date, the same row object each time.
+     */
+    public void streamRows(Optional<String> companyName, Optional<String> vatNumber, Optional<LocalDate> issuedAfter,
+                           Optional<LocalDate> dueAfter, Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                           Consumer<InvoiceImportCsvRow> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource("companyId", null)
+                .addValue("companyName", companyName.orElse(null))
+                .addValue("vatNumber", vatNumber.orElse(null))
+                .addValue("issuedAfter", issuedAfter.orElse(null))
+                .addValue("dueAfter", dueAfter.orElse(null))
+                .addValue("dueBefore", dueBefore.orElse(null))
+                .addValue("paymentStatus", paymentStatus.map(PaymentStatus::name).orElse(null));
+        InvoiceImportCsvRow row = new InvoiceImportCsvRow();
+        jdbcTemplate.query(EXPORT_ROWS, parameters, rs -> {
+            row.setInvoiceNumber(rs.getString("invoice_number"));
+            row.setIssueDate(rs.getObject("date_of_issue", LocalDate.class));
+            row.setDueDate(rs.getObject("due_date", LocalDate.class));
+            row.setPaymentStatus(PaymentStatus.valueOf(rs.getString("payment_status")));
+            row.setAmount(rs.getInt("amount_total"));
+            row.setCompanyName(rs.getString("name_of_company"));
+            row.setVatNumber(rs.getString("vat_number"));
+            row.setBankAccountNumber(rs.getString("bank_account_number"));
+            row.setItemName(rs.getString("name_of_item"));
+            row.setPieces(rs.getInt("pieces_of_items"));
+            row.setPriceTotal(rs.getInt("total_price"));
+            consumer.accept(row);
+        });
+    }
+}
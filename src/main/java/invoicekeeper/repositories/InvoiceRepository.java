@@ -1,25 +1,88 @@
 package invoicekeeper.repositories;
 
+import invoicekeeper.dtos.InvoiceRow;
+import invoicekeeper.dtos.VersionStamp;
 import invoicekeeper.model.Invoice;
+import invoicekeeper.model.PaymentStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
+    String INVOICE_FILTER = "(:companyId is null or i.company.id = :companyId) and " +
+            "(:companyName is null or i.company.companyName like concat('%', :companyName, '%')) and " +
+            "(:vatNumber is null or i.company.vatNumber = :vatNumber) and " +
+            "(:issuedAfter is null or i.issueDate > :issuedAfter) and " +
+            "(:dueAfter is null or i.dueDate > :dueAfter) and " +
+            "(:dueBefore is null or i.dueDate < :dueBefore) and " +
+            "(:paymentStatus is null or i.paymentStatus = :paymentStatus)";
+    String INVOICE_FILTER_SQL = "(:companyId is null or i.company_id = :companyId) and " +
+            "(:companyName is null or c.name_of_company like concat('%', :companyName, '%')) and " +
+            "(:vatNumber is null or c.vat_number = :vatNumber) and " +
+            "(:issuedAfter is null or i.date_of_issue > :issuedAfter) and " +
+            "(:dueAfter is null or i.due_date > :dueAfter) and " +
+            "(:dueBefore is null or i.due_date < :dueBefore) and " +
+            "(:paymentStatus is null or i.payment_status = :paymentStatus)";
+    String INVOICE_ROWS = "select new invoicekeeper.dtos.InvoiceRow(i.id, i.invoiceNumber, i.issueDate, i.dueDate, i.paymentStatus, " +
+            "i.amount, c.companyName, item.name, item.pieces, item.priceTotal) from Invoice i join i.company c left join i.items item ";
+
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
 
-    @Query("select i from Invoice i where " +
-            "(:companyName is null or i.company.companyName like concat('%', :companyName, '%')) and" +
-            "(:vatNumber is null or i.company.vatNumber = :vatNumber) and " +
-            "(:issuedAfter is null or i.issueDate > :issuedAfter)")
-    List<Invoice> findInvoicesByParameters(Optional<String> companyName, Optional<String> vatNumber,
-                                           Optional<LocalDate> issuedAfter);
+    @Override
+    @EntityGraph(attributePaths = {"company", "items"})
+    Optional<Invoice> findById(Long id);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(INVOICE_ROWS + "where i.id = :id")
+    List<InvoiceRow> findRowsById(long id);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query(INVOICE_ROWS + "where i.id in :ids")
+    List<InvoiceRow> findRowsByIds(Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
+    @Query("select i.id from Invoice i where " + INVOICE_FILTER + " and " +
+            "(:afterIssueDate is null or i.issueDate > :afterIssueDate or (i.issueDate = :afterIssueDate and i.id > :afterId)) " +
+            "order by i.issueDate, i.id")
+    List<Long> findIdsByParameters(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                    Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                    Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                                    Optional<LocalDate> afterIssueDate, Optional<Long> afterId, Pageable pageable);
+
+    @Query("select i from Invoice i join fetch i.company left join fetch i.items where " + INVOICE_FILTER +
+            " order by i.issueDate, i.id")
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    Stream<Invoice> streamInvoicesByParameters(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                               Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                               Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus);
+
+    @Query("select i.version from Invoice i where i.id = :id")
+    Optional<Long> findVersionById(long id);
 
-    @Query("select distinct i from Invoice i left join fetch i.items itm where itm.name like %:name%")
-    List<Invoice> findInvoiceByItemName(String name);
+    /**
+     * Ids and versions of exactly the rows of the page findIdsByParameters returns, in the same order.
+     */
+    @Query(nativeQuery = true, value = "select i.invoice_id as id, i.version as version " +
+            "from invoices i join companies c on c.company_id = i.company_id where " + INVOICE_FILTER_SQL + " and " +
+            "(:afterIssueDate is null or i.date_of_issue > :afterIssueDate or (i.date_of_issue = :afterIssueDate and i.invoice_id > :afterId)) " +
+            "order by i.date_of_issue, i.invoice_id limit :limit")
+    List<VersionStamp.Row> findPageVersions(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                            Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                            Optional<LocalDate> dueBefore, Optional<String> paymentStatus,
+                                            Optional<LocalDate> afterIssueDate, Optional<Long> afterId, int limit);
 }
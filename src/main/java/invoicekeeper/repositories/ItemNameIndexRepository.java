@@ -0,0 +1,98 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.model.Invoice;
+import invoicekeeper.model.InvoiceItem;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Trigram index over item names in the item_name_ngrams table. Rows are written when an invoice is saved and
+ * removed by the database together with the invoice (ON DELETE CASCADE).
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class ItemNameIndexRepository {
+    private static final String RANKED_MATCHES =
+            "select itm.invoice_id from items_on_invoices itm " +
+            "where itm.invoice_id in (%s) and itm.name_of_item like :contains " +
+            "group by itm.invoice_id " +
+            "order by min(case when itm.name_of_item like :exact then 0 when itm.name_of_item like :prefix then 1 else 2 end), " +
+            "itm.invoice_id desc " +
+            "limit :limit offset :offset";
+
+    private static final String INVOICES_WITH_ALL_NGRAMS =
+            "select n.invoice_id from item_name_ngrams n where n.ngram in (:ngrams) " +
+            "group by n.invoice_id having count(distinct n.ngram) = :ngramCount";
+
+    private static final String INVOICES_WITH_NGRAM_PREFIX =
+            "select n.invoice_id from item_name_ngrams n where n.ngram like :ngramPrefix";
+
+    private static final String INSERT_NGRAM = "insert into item_name_ngrams (ngram, invoice_id) values (:ngram, :invoiceId)";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void index(long invoiceId, Collection<InvoiceItem> items) {
+        jdbcTemplate.batchUpdate(INSERT_NGRAM, rows(invoiceId, items).toArray(MapSqlParameterSource[]::new));
+    }
+
+    public void indexAll(Collection<Invoice> invoices) {
+        List<MapSqlParameterSource> rows = new ArrayList<>();
+        for (Invoice invoice : invoices) {
+            rows.addAll(rows(invoice.getId(), invoice.getItems()));
+        }
+        jdbcTemplate.batchUpdate(INSERT_NGRAM, rows.toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * Ids of the invoices having an item whose name contains the text, exact matches first, then prefix matches,
+     * newest invoices first within the same rank.
+     */
+    public List<Long> findInvoiceIdsByItemName(String text, int page, int size) {
+        Map<String, Object> parameters = new HashMap<>();
+        String query = itemNameQuery(text, page, size, parameters);
+        return jdbcTemplate.queryForList(query, new MapSqlParameterSource(parameters), Long.class);
+    }
+
+    /**
+     * The query of {@link #findInvoiceIdsByItemName}, filling in its parameters, for the reactive read path.
+     */
+    static String itemNameQuery(String text, int page, int size, Map<String, Object> parameters) {
+        Set<String> ngrams = Ngrams.forQuery(text);
+        String escaped = Ngrams.escapeLike(text);
+        parameters.put("contains", "%" + escaped + "%");
+        parameters.put("exact", escaped);
+        parameters.put("prefix", escaped + "%");
+        parameters.put("limit", size);
+        parameters.put("offset", page * size);
+        if (ngrams.isEmpty()) {
+            parameters.put("ngramPrefix", Ngrams.escapeLike(Ngrams.normalize(text)) + "%");
+            return String.format(RANKED_MATCHES, INVOICES_WITH_NGRAM_PREFIX);
+        }
+        parameters.put("ngrams", ngrams);
+        parameters.put("ngramCount", ngrams.size());
+        return String.format(RANKED_MATCHES, INVOICES_WITH_ALL_NGRAMS);
+    }
+
+    private List<MapSqlParameterSource> rows(long invoiceId, Collection<InvoiceItem> items) {
+        Set<String> ngrams = new LinkedHashSet<>();
+        for (InvoiceItem item : items) {
+            ngrams.addAll(Ngrams.forIndex(item.getName()));
+        }
+        return ngrams.stream()
+                .map(ngram -> new MapSqlParameterSource("ngram", ngram).addValue("invoiceId", invoiceId))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,59 @@
+package invoicekeeper.repositories;
+
+import java.text.Normalizer;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into the lower case, accent free trigrams kept in the ngram index tables.
+ */
+public final class Ngrams {
+    public static final int LENGTH = 3;
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}");
+
+    private Ngrams() {
+    }
+
+    /**
+     * Trigrams stored for an indexed text. Two spaces are appended first, so every substring shorter than
+     * three characters, the last character of the text included, is the prefix of at least one stored trigram.
+     */
+    public static Set<String> forIndex(String text) {
+        String padded = normalize(text) + " ".repeat(LENGTH - 1);
+        if (padded.length() < LENGTH) {
+            return Set.of(padded);
+        }
+        return slide(padded);
+    }
+
+    /**
+     * Trigrams a text containing the query must have; empty for queries shorter than three characters.
+     */
+    public static Set<String> forQuery(String query) {
+        String normalized = normalize(query);
+        if (normalized.length() < LENGTH) {
+            return Set.of();
+        }
+        return slide(normalized);
+    }
+
+    public static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("");
+    }
+
+    public static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Set<String> slide(String text) {
+        Set<String> ngrams = new LinkedHashSet<>();
+        for (int i = 0; i + LENGTH <= text.length(); i++) {
+            ngrams.add(text.substring(i, i + LENGTH));
+        }
+        return ngrams;
+    }
+}
@@ -0,0 +1,53 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.ChangeEventDto;
+import invoicekeeper.dtos.ChangeEventType;
+import io.r2dbc.spi.Row;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking reads of the change event outbox, along its primary key.
+ */
+@Repository
+@AllArgsConstructor
+public class ReactiveChangeEventRepository {
+    private static final String EVENTS =
+            "select event_id, event_type, company_id, invoice_id, invoice_number, created_at from change_events ";
+
+    private DatabaseClient databaseClient;
+
+    public Flux<ChangeEventDto> findAfter(long afterId, int limit) {
+        return databaseClient.sql(EVENTS + "where event_id > :afterId order by event_id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(this::toDto)
+                .all();
+    }
+
+    public Flux<ChangeEventDto> findBetween(long afterId, long upToId, int limit) {
+        return databaseClient.sql(EVENTS + "where event_id > :afterId and event_id <= :upToId order by event_id limit :limit")
+                .bind("afterId", afterId)
+                .bind("upToId", upToId)
+                .bind("limit", limit)
+                .map(this::toDto)
+                .all();
+    }
+
+    public Mono<Long> findLastId() {
+        return databaseClient.sql("select coalesce(max(event_id), 0) last_id from change_events")
+                .map(row -> row.get("last_id", Long.class))
+                .one();
+    }
+
+    private ChangeEventDto toDto(Row row) {
+        return new ChangeEventDto(row.get("event_id", Long.class), ChangeEventType.valueOf(row.get("event_type", String.class)),
+                row.get("company_id", Long.class), row.get("invoice_id", Long.class), row.get("invoice_number", String.class),
+                row.get("created_at", LocalDateTime.class));
+    }
+}
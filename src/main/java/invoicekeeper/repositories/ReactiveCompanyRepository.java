@@ -0,0 +1,66 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.CompanyDto;
+import io.r2dbc.spi.Row;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Non-blocking reads of company summaries for the reactive read path, the same summaries as
+ * {@link CompanyRepository#findCompanySummaries}.
+ */
+@Repository
+@AllArgsConstructor
+public class ReactiveCompanyRepository {
+    private static final String COMPANY_SUMMARY =
+            "select c.company_id, c.name_of_company, c.vat_number, c.bank_account_number, " +
+            "count(i.invoice_id) + c.archived_invoice_count invoice_count, " +
+            "coalesce(sum(case when i.payment_status = 'UNPAYED' then i.amount_total else 0 end), 0) open_amount, " +
+            "case when max(i.date_of_issue) is null or max(i.date_of_issue) < c.last_archived_issue_date " +
+            "then c.last_archived_issue_date else max(i.date_of_issue) end last_issue_date " +
+            "from companies c left join invoices i on i.company_id = c.company_id ";
+    private static final String COMPANY_SUMMARY_GROUPING =
+            " group by c.company_id, c.name_of_company, c.vat_number, c.bank_account_number, c.archived_invoice_count, c.last_archived_issue_date";
+
+    private DatabaseClient databaseClient;
+
+    public Flux<CompanyDto> findCompanySummaries(Optional<String> searchName) {
+        if (searchName.isEmpty()) {
+            return databaseClient.sql(COMPANY_SUMMARY + COMPANY_SUMMARY_GROUPING + " order by c.company_id")
+                    .map(this::toDto)
+                    .all();
+        }
+        return databaseClient.sql(COMPANY_SUMMARY + "where c.name_of_company like concat('%', :searchName, '%')" +
+                        COMPANY_SUMMARY_GROUPING + " order by c.company_id")
+                .bind("searchName", searchName.get())
+                .map(this::toDto)
+                .all();
+    }
+
+    public Mono<CompanyDto> findCompanySummaryById(long id) {
+        return databaseClient.sql(COMPANY_SUMMARY + "where c.company_id = :id" + COMPANY_SUMMARY_GROUPING)
+                .bind("id", id)
+                .map(this::toDto)
+                .one();
+    }
+
+    public Mono<CompanyDto> findCompanySummaryByVatNumber(String vatNumber) {
+        return databaseClient.sql(COMPANY_SUMMARY + "where c.vat_number = :vatNumber" + COMPANY_SUMMARY_GROUPING)
+                .bind("vatNumber", vatNumber)
+                .map(this::toDto)
+                .one();
+    }
+
+    private CompanyDto toDto(Row row) {
+        return new CompanyDto(row.get("company_id", Long.class), row.get("name_of_company", String.class),
+                row.get("vat_number", String.class), row.get("bank_account_number", String.class),
+                ((Number) row.get("invoice_count")).longValue(), ((Number) row.get("open_amount")).longValue(),
+                row.get("last_issue_date", LocalDate.class));
+    }
+}
@@ -0,0 +1,205 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import io.r2dbc.spi.Row;
+import lombok.AllArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Non-blocking reads of invoices for the reactive read path, mapped straight to DTOs. Same filters, ordering and
+ * item search as {@link InvoiceRepository} and {@link ItemNameIndexRepository}.
+ */
+@Repository
+@AllArgsConstructor
+public class ReactiveInvoiceRepository {
+    private static final String INVOICES =
+            "select i.invoice_id, i.invoice_number, i.date_of_issue, i.due_date, i.payment_status, i.amount_total, c.name_of_company " +
+            "from invoices i join companies c on c.company_id = i.company_id ";
+
+    private static final String INVOICES_WITH_ITEMS =
+            "select i.invoice_id, i.invoice_number, i.date_of_issue, i.due_date, i.payment_status, i.amount_total, c.name_of_company, " +
+            "itm.name_of_item, itm.pieces_of_items, itm.total_price " +
+            "from invoices i join companies c on c.company_id = i.company_id " +
+            "left join items_on_invoices itm on itm.invoice_id = i.invoice_id ";
+
+    private static final String ARCHIVED_INVOICES_WITH_ITEMS =
+            "select i.invoice_id, i.invoice_number, i.date_of_issue, i.due_date, i.payment_status, i.amount_total, c.name_of_company, " +
+            "itm.name_of_item, itm.pieces_of_items, itm.total_price " +
+            "from invoices_archive i join companies c on c.company_id = i.company_id " +
+            "left join items_on_invoices_archive itm on itm.invoice_id = i.invoice_id ";
+
+    private static final String ITEMS =
+            "select invoice_id, name_of_item, pieces_of_items, total_price from items_on_invoices where invoice_id in (:ids)";
+
+    private DatabaseClient databaseClient;
+
+    /**
+     * The invoice with its items, looked up in the archive when it is not among the current invoices.
+     */
+    public Mono<InvoiceDto> findById(long id) {
+        return findById(INVOICES_WITH_ITEMS, id)
+                .switchIfEmpty(Mono.defer(() -> findById(ARCHIVED_INVOICES_WITH_ITEMS, id)));
+    }
+
+    private Mono<InvoiceDto> findById(String query, long id) {
+        return databaseClient.sql(query + "where i.invoice_id = :id")
+                .bind("id", id)
+                .map(this::toDtoWithItem)
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(this::merge);
+    }
+
+    /**
+     * A page of the invoices matching the filters in the order of the listing, read with one query for the invoices
+     * and one for their items.
+     */
+    public Flux<InvoiceDto> findInvoicesByParameters(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                                     Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                                     Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus,
+                                                     Optional<LocalDate> afterIssueDate, Optional<Long> afterId, int limit) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder query = new StringBuilder(INVOICES);
+        appendFilter(query, parameters, companyId, companyName, vatNumber, issuedAfter, dueAfter, dueBefore, paymentStatus);
+        if (afterIssueDate.isPresent()) {
+            query.append("and (i.date_of_issue > :afterIssueDate or (i.date_of_issue = :afterIssueDate and i.invoice_id > :afterId)) ");
+            parameters.put("afterIssueDate", afterIssueDate.get());
+            parameters.put("afterId", afterId.orElse(0L));
+        }
+        query.append("order by i.date_of_issue, i.invoice_id limit :limit");
+        parameters.put("limit", limit);
+        return sql(query.toString(), parameters)
+                .map(this::toDto)
+                .all()
+                .collectList()
+                .flatMapMany(this::withItems);
+    }
+
+    /**
+     * Every invoice matching the filters with its items, in the order of the listing. Rows are requested from the
+     * database as the subscriber consumes the invoices.
+     */
+    public Flux<InvoiceDto> streamInvoicesByParameters(Optional<String> companyName, Optional<String> vatNumber,
+                                                       Optional<LocalDate> issuedAfter, Optional<LocalDate> dueAfter,
+                                                       Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus) {
+        Map<String, Object> parameters = new HashMap<>();
+        StringBuilder query = new StringBuilder(INVOICES_WITH_ITEMS);
+        appendFilter(query, parameters, Optional.empty(), companyName, vatNumber, issuedAfter, dueAfter, dueBefore, paymentStatus);
+        query.append("order by i.date_of_issue, i.invoice_id");
+        return sql(query.toString(), parameters)
+                .map(this::toDtoWithItem)
+                .all()
+                .bufferUntilChanged(InvoiceDto::getId)
+                .map(this::merge);
+    }
+
+    public Flux<Long> findInvoiceIdsByItemName(String text, int page, int size) {
+        Map<String, Object> parameters = new HashMap<>();
+        String query = ItemNameIndexRepository.itemNameQuery(text, page, size, parameters);
+        return sql(query, parameters)
+                .map(row -> row.get("invoice_id", Long.class))
+                .all();
+    }
+
+    /**
+     * The invoices with their items, in the order of the ids.
+     */
+    public Flux<InvoiceDto> findInvoicesWithItemsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(INVOICES + "where i.invoice_id in (:ids)")
+                .bind("ids", ids)
+                .map(this::toDto)
+                .all()
+                .collectMap(InvoiceDto::getId)
+                .map(invoicesById -> ids.stream().map(invoicesById::get).filter(Objects::nonNull).collect(Collectors.toList()))
+                .flatMapMany(this::withItems);
+    }
+
+    private Flux<InvoiceDto> withItems(List<InvoiceDto> invoices) {
+        if (invoices.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(ITEMS)
+                .bind("ids", invoices.stream().map(InvoiceDto::getId).collect(Collectors.toList()))
+                .map(row -> Map.entry(row.get("invoice_id", Long.class), toItem(row)))
+                .all()
+                .collectMultimap(Map.Entry::getKey, Map.Entry::getValue)
+                .flatMapIterable(itemsByInvoiceId -> {
+                    invoices.forEach(invoice -> invoice.getItems().addAll(itemsByInvoiceId.getOrDefault(invoice.getId(), List.of())));
+                    return invoices;
+                });
+    }
+
+    private void appendFilter(StringBuilder query, Map<String, Object> parameters, Optional<Long> companyId,
+                              Optional<String> companyName, Optional<String> vatNumber, Optional<LocalDate> issuedAfter,
+                              Optional<LocalDate> dueAfter, Optional<LocalDate> dueBefore, Optional<PaymentStatus> paymentStatus) {
+        query.append("where 1 = 1 ");
+        appendCondition(query, parameters, "i.company_id = :companyId", "companyId", companyId);
+        appendCondition(query, parameters, "c.name_of_company like concat('%', :companyName, '%')", "companyName", companyName);
+        appendCondition(query, parameters, "c.vat_number = :vatNumber", "vatNumber", vatNumber);
+        appendCondition(query, parameters, "i.date_of_issue > :issuedAfter", "issuedAfter", issuedAfter);
+        appendCondition(query, parameters, "i.due_date > :dueAfter", "dueAfter", dueAfter);
+        appendCondition(query, parameters, "i.due_date < :dueBefore", "dueBefore", dueBefore);
+        appendCondition(query, parameters, "i.payment_status = :paymentStatus", "paymentStatus", paymentStatus.map(PaymentStatus::name));
+    }
+
+    private void appendCondition(StringBuilder query, Map<String, Object> parameters, String condition, String name, Optional<?> value) {
+        value.ifPresent(v -> {
+            query.append("and ").append(condition).append(' ');
+            parameters.put(name, v);
+        });
+    }
+
+    private DatabaseClient.GenericExecuteSpec sql(String query, Map<String, Object> parameters) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query);
+        for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+            spec = spec.bind(parameter.getKey(), parameter.getValue());
+        }
+        return spec;
+    }
+
+    private InvoiceDto toDto(Row row) {
+        return new InvoiceDto(row.get("invoice_id", Long.class), row.get("invoice_number", String.class),
+                row.get("date_of_issue", LocalDate.class), row.get("due_date", LocalDate.class),
+                PaymentStatus.valueOf(row.get("payment_status", String.class)), new ArrayList<>(),
+                row.get("amount_total", Integer.class), row.get("name_of_company", String.class));
+    }
+
+    private InvoiceDto toDtoWithItem(Row row) {
+        InvoiceDto invoice = toDto(row);
+        if (row.get("name_of_item", String.class) != null) {
+            invoice.getItems().add(toItem(row));
+        }
+        return invoice;
+    }
+
+    private InvoiceItem toItem(Row row) {
+        return new InvoiceItem(row.get("name_of_item", String.class), row.get("pieces_of_items", Integer.class),
+                row.get("total_price", Integer.class));
+    }
+
+    private InvoiceDto merge(Collection<InvoiceDto> rows) {
+        List<InvoiceDto> invoiceRows = new ArrayList<>(rows);
+        InvoiceDto invoice = invoiceRows.get(0);
+        invoiceRows.subList(1, invoiceRows.size()).forEach(row -> invoice.getItems().addAll(row.getItems()));
+        return invoice;
+    }
+}
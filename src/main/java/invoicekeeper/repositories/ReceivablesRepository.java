@@ -0,0 +1,140 @@
+package invoicekeeper.repositories;
+
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.model.Invoice;
+import invoicekeeper.model.PaymentStatus;
+import io.micrometer.core.annotation.Timed;
+import lombok.AllArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts and amounts of the paid and unpaid invoices in the receivables table, one row for each company and due date.
+ * Every change to an invoice has to be recorded here in the same transaction. Keeping the due date in the key lets the
+ * report split the unpaid invoices into overdue and not yet due ones on any day, without reading the invoices.
+ */
+@Repository
+@AllArgsConstructor
+@Timed(value = "invoicekeeper.repository", description = "Calls of the JDBC repositories.")
+public class ReceivablesRepository {
+    private static final String UPSERT =
+            "insert into receivables (company_id, due_date, unpaid_count, unpaid_amount, paid_count, paid_amount) " +
+            "values (:companyId, :dueDate, :unpaidCount, :unpaidAmount, :paidCount, :paidAmount) " +
+            "on duplicate key update unpaid_count = unpaid_count + values(unpaid_count), " +
+            "unpaid_amount = unpaid_amount + values(unpaid_amount), " +
+            "paid_count = paid_count + values(paid_count), " +
+            "paid_amount = paid_amount + values(paid_amount)";
+
+    private static final String REPORT =
+            "select c.company_id, c.name_of_company, c.vat_number, " +
+            "sum(r.unpaid_count) unpaid_count, sum(r.unpaid_amount) unpaid_amount, " +
+            "sum(case when r.due_date < :today then r.unpaid_count else 0 end) overdue_count, " +
+            "sum(case when r.due_date < :today then r.unpaid_amount else 0 end) overdue_amount, " +
+            "sum(r.paid_count) paid_count, sum(r.paid_amount) paid_amount " +
+            "from receivables r join companies c on c.company_id = r.company_id " +
+            "group by c.company_id, c.name_of_company, c.vat_number " +
+            "having sum(r.unpaid_count) + sum(r.paid_count) > 0 " +
+            "order by c.company_id";
+
+    private NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void add(Invoice invoice) {
+        jdbcTemplate.update(UPSERT, change(invoice, 1));
+    }
+
+    public void addAll(Collection<Invoice> invoices) {
+        Map<List<Object>, MapSqlParameterSource> changes = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            changes.merge(List.of(invoice.getCompany().getId(), invoice.getDueDate()), change(invoice, 1), this::sum);
+        }
+        jdbcTemplate.batchUpdate(UPSERT, changes.values().toArray(MapSqlParameterSource[]::new));
+    }
+
+    public void remove(Invoice invoice) {
+        jdbcTemplate.update(UPSERT, change(invoice, -1));
+    }
+
+    /**
+     * Subtracts the invoices with the given ids, hot or archived, before they are deleted.
+     */
+    public void removeInvoices(Collection<Long> invoiceIds, boolean archived) {
+        if (invoiceIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update("update receivables r join (select company_id, due_date, " +
+                        "sum(case when payment_status = 'UNPAYED' then 1 else 0 end) unpaid_count, " +
+                        "sum(case when payment_status = 'UNPAYED' then amount_total else 0 end) unpaid_amount, " +
+                        "sum(case when payment_status = 'PAYED' then 1 else 0 end) paid_count, " +
+                        "sum(case when payment_status = 'PAYED' then amount_total else 0 end) paid_amount " +
+                        "from " + (archived ? "invoices_archive" : "invoices") + " where invoice_id in (:ids) group by company_id, due_date) d " +
+                        "on d.company_id = r.company_id and d.due_date = r.due_date " +
+                        "set r.unpaid_count = r.unpaid_count - d.unpaid_count, r.unpaid_amount = r.unpaid_amount - d.unpaid_amount, " +
+                        "r.paid_count = r.paid_count - d.paid_count, r.paid_amount = r.paid_amount - d.paid_amount",
+                new MapSqlParameterSource("ids", invoiceIds));
+    }
+
+    /**
+     * Removes every row of the company, for deleting the company together with all of its invoices.
+     */
+    public void removeCompany(long companyId) {
+        jdbcTemplate.update("delete from receivables where company_id = :companyId", new MapSqlParameterSource("companyId", companyId));
+    }
+
+    public void markPaid(Invoice invoice) {
+        jdbcTemplate.update("update receivables set unpaid_count = unpaid_count - 1, unpaid_amount = unpaid_amount - :amount, " +
+                        "paid_count = paid_count + 1, paid_amount = paid_amount + :amount " +
+                        "where company_id = :companyId and due_date = :dueDate",
+                new MapSqlParameterSource("amount", invoice.getAmount())
+                        .addValue("companyId", invoice.getCompany().getId())
+                        .addValue("dueDate", invoice.getDueDate()));
+    }
+
+    public void markAllPaid(Collection<Invoice> invoices) {
+        Map<List<Object>, MapSqlParameterSource> changes = new LinkedHashMap<>();
+        for (Invoice invoice : invoices) {
+            changes.merge(List.of(invoice.getCompany().getId(), invoice.getDueDate()), payment(invoice), this::sum);
+        }
+        jdbcTemplate.batchUpdate(UPSERT, changes.values().toArray(MapSqlParameterSource[]::new));
+    }
+
+    public List<ReceivablesDto> findReceivablesByCompany(LocalDate today) {
+        return jdbcTemplate.query(REPORT, new MapSqlParameterSource("today", today),
+                (rs, rowNum) -> new ReceivablesDto(rs.getLong("company_id"), rs.getString("name_of_company"), rs.getString("vat_number"),
+                        rs.getLong("unpaid_count"), rs.getLong("unpaid_amount"), rs.getLong("overdue_count"),
+                        rs.getLong("overdue_amount"), rs.getLong("paid_count"), rs.getLong("paid_amount")));
+    }
+
+    private MapSqlParameterSource change(Invoice invoice, int sign) {
+        boolean unpaid = invoice.getPaymentStatus() == PaymentStatus.UNPAYED;
+        long amount = (long) sign * invoice.getAmount();
+        return new MapSqlParameterSource("companyId", invoice.getCompany().getId())
+                .addValue("dueDate", invoice.getDueDate())
+                .addValue("unpaidCount", unpaid ? sign : 0)
+                .addValue("unpaidAmount", unpaid ? amount : 0L)
+                .addValue("paidCount", unpaid ? 0 : sign)
+                .addValue("paidAmount", unpaid ? 0L : amount);
+    }
+
+    private MapSqlParameterSource payment(Invoice invoice) {
+        return new MapSqlParameterSource("companyId", invoice.getCompany().getId())
+                .addValue("dueDate", invoice.getDueDate())
+                .addValue("unpaidCount", -1)
+                .addValue("unpaidAmount", -(long) invoice.getAmount())
+                .addValue("paidCount", 1)
+                .addValue("paidAmount", (long) invoice.getAmount());
+    }
+
+    private MapSqlParameterSource sum(MapSqlParameterSource first, MapSqlParameterSource second) {
+        for (String counter : List.of("unpaidCount", "unpaidAmount", "paidCount", "paidAmount")) {
+            first.addValue(counter, ((Number) first.getValue(counter)).longValue() + ((Number) second.getValue(counter)).longValue());
+        }
+        return first;
+    }
+}
@@ -0,0 +1,148 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.ChangeEventDto;
+import invoicekeeper.repositories.ReactiveChangeEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The change feed: a single poller tails the outbox for all subscribers while there are any, and a resuming subscriber
+ * gets the events after its last one from the outbox before the live ones.
+ */
+@Service
+@Slf4j
+public class ChangeEventService {
+    private static final long NOT_STARTED = -1;
+
+    private final ReactiveChangeEventRepository repository;
+    private final int batchSize;
+    private final int bufferSize;
+    private final Duration gapTimeout;
+    private final AtomicLong lastPassedId = new AtomicLong(NOT_STARTED);
+    private final Flux<ChangeEventDto> live;
+    private Instant gapSince;
+
+    public ChangeEventService(ReactiveChangeEventRepository repository,
+                              @Value("${invoicekeeper.events.poll-interval:1s}") Duration pollInterval,
+                              @Value("${invoicekeeper.events.batch-size:500}") int batchSize,
+                              @Value("${invoicekeeper.events.buffer-size:10000}") int bufferSize,
+                              @Value("${invoicekeeper.events.gap-timeout:10s}") Duration gapTimeout) {
+        this.repository = repository;
+        this.batchSize = batchSize;
+        this.bufferSize = bufferSize;
+        this.gapTimeout = gapTimeout;
+        this.live = Flux.interval(Duration.ZERO, pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> poll()
+                        .onErrorResume(e -> {
+                            log.warn("Polling the change events failed", e);
+                            return Mono.just(List.of());
+                        }), 1)
+                .flatMapIterable(events -> events)
+                .doFinally(signal -> {
+                    lastPassedId.set(NOT_STARTED);
+                    gapSince = null;
+                })
+                .publish()
+                .refCount();
+    }
+
+    /**
+     * The events after the given id, or the ones from now on without an id, followed by the live events.
+     */
+    public Flux<ChangeEventDto> getEvents(Optional<Long> afterId) {
+        return Flux.defer(() -> {
+            Sinks.Many<ChangeEventDto> buffer = Sinks.many().unicast().onBackpressureBuffer(Queues.<ChangeEventDto>get(bufferSize).get());
+            Disposable subscription = live.subscribe(
+                    event -> {
+                        if (buffer.tryEmitNext(event).isFailure()) {
+                            buffer.tryEmitError(new IllegalStateException("Change event subscriber too slow, resume from the last event."));
+                        }
+                    },
+                    buffer::tryEmitError);
+            AtomicLong lastSent = new AtomicLong();
+            return start()
+                    .flatMapMany(passedId -> {
+                        long from = afterId.orElse(passedId);
+                        lastSent.set(from);
+                        return Flux.concat(backlog(from, passedId), buffer.asFlux());
+                    })
+                    .filter(event -> event.getId() > lastSent.get())
+                    .doOnNext(event -> lastSent.set(event.getId()))
+                    .doFinally(signal -> subscription.dispose());
+        });
+    }
+
+    /**
+     * The id the poller has passed, starting it from the last event in the outbox when it has not passed any yet.
+     */
+    private Mono<Long> start() {
+        long passedId = lastPassedId.get();
+        if (passedId != NOT_STARTED) {
+            return Mono.just(passedId);
+        }
+        return repository.findLastId()
+                .map(lastId -> {
+                    lastPassedId.compareAndSet(NOT_STARTED, lastId);
+                    return lastPassedId.get();
+                });
+    }
+
+    private Flux<ChangeEventDto> backlog(long afterId, long upToId) {
+        if (afterId >= upToId) {
+            return Flux.empty();
+        }
+        return repository.findBetween(afterId, upToId, batchSize)
+                .collectList()
+                .flatMapMany(events -> events.size() < batchSize
+                        ? Flux.fromIterable(events)
+                        : Flux.fromIterable(events).concatWith(Flux.defer(() -> backlog(events.get(events.size() - 1).getId(), upToId))));
+    }
+
+    /**
+     * The events after the last passed one, up to the first missing id, or past it when it has been missing longer
+     * than the gap timeout: ids are handed out before commit and increase by one. Only called by the poller.
+     */
+    private Mono<List<ChangeEventDto>> poll() {
+        return start()
+                .flatMap(passedId -> repository.findAfter(passedId, batchSize).collectList())
+                .map(events -> {
+                    List<ChangeEventDto> passed = new ArrayList<>();
+                    for (ChangeEventDto event : events) {
+                        long passedId = lastPassedId.get();
+                        if (passedId != 0 && event.getId() != passedId + 1 && !gapTimedOut()) {
+                            return passed;
+                        }
+                        lastPassedId.set(event.getId());
+                        gapSince = null;
+                        passed.add(event);
+                    }
+                    return passed;
+                });
+    }
+
+    private boolean gapTimedOut() {
+        Instant now = Instant.now();
+        if (gapSince == null) {
+            gapSince = now;
+        }
+        if (now.isBefore(gapSince.plus(gapTimeout))) {
+            return false;
+        }
+        log.warn("Change event after id {} not committed within {}, skipped", lastPassedId.get(), gapTimeout);
+        return true;
+    }
+}
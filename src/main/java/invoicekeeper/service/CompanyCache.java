@@ -0,0 +1,74 @@
+package invoicekeeper.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import invoicekeeper.dtos.CompanySnapshot;
+import invoicekeeper.repositories.CompanyRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Size bounded, expiring cache of companies by VAT number, unknown VAT numbers included. Holds snapshots, never
+ * entities. Every change to a company has to evict its VAT number; the eviction is repeated after the transaction
+ * completes, so a lookup running concurrently with the change can not leave the old state behind. With a read replica
+ * configured, the lookups of read-only transactions read the cache but do not fill it: they are answered by the
+ * replica, which may not have caught up with the primary yet, and a company missing there would be cached as unknown.
+ * Hit, miss and eviction counts are published as the cache.* metrics of the companiesByVatNumber cache.
+ */
+@Component
+public class CompanyCache {
+    private final Cache<String, Optional<CompanySnapshot>> companiesByVatNumber;
+    private final CompanyRepository companyRepository;
+    private final boolean replicaConfigured;
+
+    public CompanyCache(CompanyRepository companyRepository, MeterRegistry meterRegistry,
+                        @Value("${invoicekeeper.replica.url:}") String replicaUrl,
+                        @Value("${invoicekeeper.company-cache.maximum-size:10000}") long maximumSize,
+                        @Value("${invoicekeeper.company-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.companyRepository = companyRepository;
+        this.replicaConfigured = !replicaUrl.isEmpty();
+        this.companiesByVatNumber = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, companiesByVatNumber, "companiesByVatNumber");
+    }
+
+    public Optional<CompanySnapshot> findByVatNumber(String vatNumber) {
+        if (replicaConfigured && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            Optional<CompanySnapshot> cached = companiesByVatNumber.getIfPresent(vatNumber);
+            return cached != null ? cached : companyRepository.findSnapshotByVatNumber(vatNumber);
+        }
+        return companiesByVatNumber.get(vatNumber, companyRepository::findSnapshotByVatNumber);
+    }
+
+    public void evict(String vatNumber) {
+        evictAll(List.of(vatNumber));
+    }
+
+    public void evictAll(Collection<String> vatNumbers) {
+        companiesByVatNumber.invalidateAll(vatNumbers);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    companiesByVatNumber.invalidateAll(vatNumbers);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        companiesByVatNumber.invalidateAll();
+    }
+}
@@ -0,0 +1,169 @@
+package invoicekeeper.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import invoicekeeper.dtos.ChangeEventType;
+import invoicekeeper.dtos.CompanyDeletionJobDto;
+import invoicekeeper.dtos.CompanyDeletionStatus;
+import invoicekeeper.exceptions.CompanyDeletionJobNotFoundException;
+import invoicekeeper.exceptions.CompanyNotFoundException;
+import invoicekeeper.repositories.ChangeEventRepository;
+import invoicekeeper.repositories.CompanyDeletionRepository;
+import invoicekeeper.repositories.InvoiceBatchRepository;
+import invoicekeeper.repositories.ReceivablesRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Deletes companies with set-based statements, their invoices in chunks of the configured size, each chunk in its own
+ * transaction; a company with more than one chunk is deleted by a background job whose progress can be polled.
+ */
+@Service
+@Slf4j
+public class CompanyDeletionService {
+    private final CompanyDeletionRepository companyDeletionRepository;
+    private final InvoiceBatchRepository invoiceBatchRepository;
+    private final ReceivablesRepository receivablesRepository;
+    private final ChangeEventRepository changeEventRepository;
+    private final CompanyCache companyCache;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final int chunkSize;
+    private final Cache<UUID, CompanyDeletionJobDto> jobs;
+    private final Map<Long, UUID> runningJobIds = new ConcurrentHashMap<>();
+
+    public CompanyDeletionService(CompanyDeletionRepository companyDeletionRepository, InvoiceBatchRepository invoiceBatchRepository,
+                                  ReceivablesRepository receivablesRepository, ChangeEventRepository changeEventRepository, CompanyCache companyCache,
+                                  SecondLevelCacheEvictor secondLevelCacheEvictor, TransactionTemplate transactionTemplate,
+                                  TaskExecutor taskExecutor,
+                                  @Value("${invoicekeeper.company-deletion.chunk-size:1000}") int chunkSize,
+                                  @Value("${invoicekeeper.company-deletion.job-retention:1h}") Duration jobRetention) {
+        this.companyDeletionRepository = companyDeletionRepository;
+        this.invoiceBatchRepository = invoiceBatchRepository;
+        this.receivablesRepository = receivablesRepository;
+        this.changeEventRepository = changeEventRepository;
+        this.companyCache = companyCache;
+        this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+        this.transactionTemplate = transactionTemplate;
+        this.taskExecutor = taskExecutor;
+        this.chunkSize = chunkSize;
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(jobRetention)
+                .build();
+    }
+
+    /**
+     * Deletes the company, or starts a job deleting it when it has more than one chunk of invoices. Empty when the
+     * company is already deleted, the job otherwise. Deleting a company being deleted returns its running job.
+     */
+    public Optional<CompanyDeletionJobDto> deleteCompanyById(long id) {
+        String vatNumber = companyDeletionRepository.findVatNumber(id)
+                .orElseThrow(() -> new CompanyNotFoundException(id));
+        UUID jobId = UUID.randomUUID();
+        UUID runningJobId = runningJobIds.putIfAbsent(id, jobId);
+        if (runningJobId != null) {
+            return Optional.of(getDeletionJob(runningJobId));
+        }
+        long invoiceCount = companyDeletionRepository.countInvoices(id);
+        if (invoiceCount <= chunkSize) {
+            try {
+                deleteInChunks(id, vatNumber, deleted -> {});
+            } finally {
+                runningJobIds.remove(id);
+            }
+            return Optional.empty();
+        }
+        CompanyDeletionJobDto job = new CompanyDeletionJobDto(jobId, id, CompanyDeletionStatus.RUNNING, invoiceCount, 0, null);
+        jobs.put(jobId, job);
+        try {
+            taskExecutor.execute(() -> runJob(job, vatNumber));
+        } catch (RuntimeException e) {
+            runningJobIds.remove(id);
+            jobs.invalidate(jobId);
+            throw e;
+        }
+        return Optional.of(job);
+    }
+
+    public CompanyDeletionJobDto getDeletionJob(UUID id) {
+        CompanyDeletionJobDto job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new CompanyDeletionJobNotFoundException(id);
+        }
+        return job;
+    }
+
+    private void runJob(CompanyDeletionJobDto job, String vatNumber) {
+        try {
+            long deleted = deleteInChunks(job.getCompanyId(), vatNumber,
+                    progress -> jobs.put(job.getId(), withProgress(job, CompanyDeletionStatus.RUNNING, progress, null)));
+            jobs.put(job.getId(), withProgress(job, CompanyDeletionStatus.COMPLETED, deleted, null));
+        } catch (RuntimeException e) {
+            log.error("Deleting company {} failed", job.getCompanyId(), e);
+            long deleted = Optional.ofNullable(jobs.getIfPresent(job.getId()))
+                    .map(CompanyDeletionJobDto::getDeletedInvoiceCount)
+                    .orElse(0L);
+            jobs.put(job.getId(), withProgress(job, CompanyDeletionStatus.FAILED, deleted,
+                    "The deletion stopped, the company and its remaining invoices were kept."));
+        } finally {
+            runningJobIds.remove(job.getCompanyId());
+        }
+    }
+
+    private long deleteInChunks(long id, String vatNumber, LongConsumer progress) {
+        long deleted = 0;
+        int chunk;
+        do {
+            chunk = deleteChunk(id, vatNumber);
+            deleted += chunk;
+            progress.accept(deleted);
+        } while (chunk == chunkSize);
+        return deleted;
+    }
+
+    /**
+     * Deletes the next chunk of invoices of the company, the archived ones after the hot ones, and the company itself
+     * when fewer than a chunk were left. The chunk is subtracted from the receivables, so they stay right while a job
+     * runs or after it fails.
+     */
+    private int deleteChunk(long id, String vatNumber) {
+        return transactionTemplate.execute(status -> {
+            invoiceBatchRepository.incrementCompanyVersions(List.of(id));
+            List<Long> invoiceIds = companyDeletionRepository.findInvoiceIds(id, chunkSize);
+            receivablesRepository.removeInvoices(invoiceIds, false);
+            companyDeletionRepository.deleteInvoices(invoiceIds);
+            List<Long> archivedIds = invoiceIds.size() < chunkSize
+                    ? companyDeletionRepository.findArchivedInvoiceIds(id, chunkSize - invoiceIds.size())
+                    : List.of();
+            receivablesRepository.removeInvoices(archivedIds, true);
+            companyDeletionRepository.deleteArchivedInvoices(archivedIds);
+            int deleted = invoiceIds.size() + archivedIds.size();
+            if (deleted < chunkSize) {
+                receivablesRepository.removeCompany(id);
+                companyDeletionRepository.deleteCompany(id);
+                companyCache.evict(vatNumber);
+                changeEventRepository.addCompanyEvent(ChangeEventType.COMPANY_DELETED, id);
+            }
+            secondLevelCacheEvictor.evictCompanies(List.of(id));
+            secondLevelCacheEvictor.evictInvoices(invoiceIds);
+            secondLevelCacheEvictor.evictQueryResults();
+            return deleted;
+        });
+    }
+
+    private CompanyDeletionJobDto withProgress(CompanyDeletionJobDto job, CompanyDeletionStatus status, long deleted, String error) {
+        return new CompanyDeletionJobDto(job.getId(), job.getCompanyId(), status, Math.max(job.getInvoiceCount(), deleted), deleted, error);
+    }
+}
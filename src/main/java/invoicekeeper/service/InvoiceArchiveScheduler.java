@@ -0,0 +1,26 @@
+package invoicekeeper.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Runs the archiving in the background with the configured delay between runs, switched on with
+ * invoicekeeper.archive.enabled.
+ */
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+@ConditionalOnProperty(name = "invoicekeeper.archive.enabled", havingValue = "true")
+public class InvoiceArchiveScheduler {
+    private final InvoiceArchiveService invoiceArchiveService;
+
+    public InvoiceArchiveScheduler(InvoiceArchiveService invoiceArchiveService) {
+        this.invoiceArchiveService = invoiceArchiveService;
+    }
+
+    @Scheduled(initialDelayString = "${invoicekeeper.archive.interval:PT1H}", fixedDelayString = "${invoicekeeper.archive.interval:PT1H}")
+    public void archive() {
+        invoiceArchiveService.archive();
+    }
+}
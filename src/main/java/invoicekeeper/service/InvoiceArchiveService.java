@@ -0,0 +1,78 @@
+package invoicekeeper.service;
+
+import invoicekeeper.repositories.InvoiceArchiveRepository;
+import invoicekeeper.repositories.InvoiceArchiveRepository.ArchivableInvoice;
+import invoicekeeper.repositories.InvoiceBatchRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the paid invoices issued more than the configured time ago to the archive tables, in batches of the configured
+ * size, each batch in its own transaction.
+ */
+@Service
+@Slf4j
+public class InvoiceArchiveService {
+    private final InvoiceArchiveRepository invoiceArchiveRepository;
+    private final InvoiceBatchRepository invoiceBatchRepository;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+    private final TransactionTemplate transactionTemplate;
+    private final Period minAge;
+    private final int batchSize;
+
+    public InvoiceArchiveService(InvoiceArchiveRepository invoiceArchiveRepository, InvoiceBatchRepository invoiceBatchRepository,
+                                 SecondLevelCacheEvictor secondLevelCacheEvictor, TransactionTemplate transactionTemplate,
+                                 @Value("${invoicekeeper.archive.min-age:P2Y}") Period minAge,
+                                 @Value("${invoicekeeper.archive.batch-size:1000}") int batchSize) {
+        this.invoiceArchiveRepository = invoiceArchiveRepository;
+        this.invoiceBatchRepository = invoiceBatchRepository;
+        this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+        this.transactionTemplate = transactionTemplate;
+        this.minAge = minAge;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Archives every invoice old enough, and returns their number.
+     */
+    public long archive() {
+        LocalDate issuedBefore = LocalDate.now().minus(minAge);
+        long archived = 0;
+        List<Long> ids;
+        while (!(ids = invoiceArchiveRepository.findArchivableIds(issuedBefore, batchSize)).isEmpty()) {
+            archived += archiveBatch(ids, issuedBefore);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        log.info("Archived {} invoices issued before {}", archived, issuedBefore);
+        return archived;
+    }
+
+    private int archiveBatch(List<Long> ids, LocalDate issuedBefore) {
+        return transactionTemplate.execute(status -> {
+            List<Long> companyIds = invoiceArchiveRepository.findCompanyIds(ids);
+            invoiceBatchRepository.incrementCompanyVersions(companyIds);
+            List<ArchivableInvoice> invoices = invoiceArchiveRepository.lockArchivable(ids, issuedBefore);
+            if (invoices.isEmpty()) {
+                return 0;
+            }
+            List<Long> lockedIds = invoices.stream()
+                    .map(ArchivableInvoice::getId)
+                    .collect(Collectors.toList());
+            invoiceArchiveRepository.moveToArchive(lockedIds);
+            invoiceArchiveRepository.addArchivedToCompanies(invoices);
+            secondLevelCacheEvictor.evictCompanies(companyIds);
+            secondLevelCacheEvictor.evictInvoices(lockedIds);
+            secondLevelCacheEvictor.evictQueryResults();
+            return invoices.size();
+        });
+    }
+}
@@ -0,0 +1,55 @@
+package invoicekeeper.service;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import invoicekeeper.dtos.InvoiceFilter;
+import invoicekeeper.dtos.InvoiceImportCsvRow;
+import invoicekeeper.repositories.InvoiceExportRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Writes invoices as CSV in the format of the CSV import, straight from the database cursor to the output: nothing is
+ * kept after a row is written, so the memory use does not depend on the number of invoices exported.
+ */
+@Service
+@AllArgsConstructor
+public class InvoiceExportService {
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .enable(CsvGenerator.Feature.STRICT_CHECK_FOR_QUOTING)
+            .build();
+    private static final ObjectWriter CSV_WRITER = CSV_MAPPER
+            .writer(CSV_MAPPER.schemaFor(InvoiceImportCsvRow.class).withHeader());
+
+    private InvoiceExportRepository invoiceExportRepository;
+
+    public void exportCsv(InvoiceFilter filter, OutputStream out) throws IOException {
+        LocalDate today = LocalDate.now();
+        try (SequenceWriter writer = CSV_WRITER.writeValues(out)) {
+            invoiceExportRepository.streamRows(Optional.ofNullable(filter.getCompanyName()), Optional.ofNullable(filter.getVatNumber()),
+                    Optional.ofNullable(filter.getIssuedAfter()), InvoicingService.dueAfter(filter, today),
+                    InvoicingService.dueBefore(filter, today), Optional.ofNullable(filter.getPaymentStatus()),
+                    row -> write(writer, row));
+        }
+    }
+
+    private void write(SequenceWriter writer, InvoiceImportCsvRow row) {
+        try {
+            writer.write(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
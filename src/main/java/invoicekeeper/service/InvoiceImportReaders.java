@@ -0,0 +1,184 @@
+package invoicekeeper.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceImportCsvRow;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.model.InvoiceItem;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads import records and statement transfers lazily from the request body, so only the batch being written is held
+ * in memory. A record that can not be parsed is returned as unreadable and reading goes on with the next one.
+ */
+final class InvoiceImportReaders {
+    private static final ObjectReader CSV_READER = CsvMapper.builder()
+            .addModule(new JavaTimeModule())
+            .build()
+            .readerFor(InvoiceImportCsvRow.class)
+            .with(CsvSchema.emptySchema().withHeader());
+    private static final ObjectReader STATEMENT_READER = CsvMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build()
+            .readerFor(PayInvoiceCommand.class)
+            .with(CsvSchema.emptySchema().withHeader());
+
+    private InvoiceImportReaders() {
+    }
+
+    /**
+     * One invoice per line, blank lines are skipped. Records are numbered by line.
+     */
+    static Iterator<InvoiceImportRecord> ndjson(ObjectMapper objectMapper, InputStream body) {
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        ObjectReader reader = objectMapper.readerFor(CreateNewInvoiceCommand.class);
+        return new LookaheadIterator<>() {
+            private int lineNumber;
+
+            @Override
+            InvoiceImportRecord computeNext() throws IOException {
+                String line;
+                do {
+                    line = lines.readLine();
+                    lineNumber++;
+                } while (line != null && line.isBlank());
+                if (line == null) {
+                    return null;
+                }
+                try {
+                    return InvoiceImportRecord.read(lineNumber, reader.readValue(line));
+                } catch (JsonProcessingException e) {
+                    return InvoiceImportRecord.unreadable(lineNumber, e.getOriginalMessage());
+                }
+            }
+        };
+    }
+
+    /**
+     * A header line followed by one line for each item, consecutive lines with the same invoice number making up one
+     * invoice. Records are numbered by their first line.
+     */
+    static Iterator<InvoiceImportRecord> csv(InputStream body) {
+        MappingIterator<InvoiceImportCsvRow> rows = readRows(CSV_READER, body);
+        return new LookaheadIterator<>() {
+            private InvoiceImportCsvRow pending;
+            private String pendingError;
+            private int pendingLine;
+
+            @Override
+            InvoiceImportRecord computeNext() {
+                if (!readRow()) {
+                    return null;
+                }
+                int firstLine = pendingLine;
+                if (pendingError != null) {
+                    String error = pendingError;
+                    pendingError = null;
+                    return InvoiceImportRecord.unreadable(firstLine, error);
+                }
+                InvoiceImportCsvRow first = pending;
+                List<InvoiceItem> items = new ArrayList<>();
+                do {
+                    items.add(new InvoiceItem(pending.getItemName(), pending.getPieces(), pending.getPriceTotal()));
+                    pending = null;
+                } while (readRow() && pending != null && first.getInvoiceNumber() != null
+                        && first.getInvoiceNumber().equals(pending.getInvoiceNumber()));
+                return InvoiceImportRecord.read(firstLine, new CreateNewInvoiceCommand(first.getInvoiceNumber(),
+                        first.getIssueDate(), first.getDueDate(), first.getPaymentStatus(), items, first.getAmount(),
+                        first.getCompanyName(), first.getVatNumber(), first.getBankAccountNumber()));
+            }
+
+            private boolean readRow() {
+                if (pending != null || pendingError != null) {
+                    return true;
+                }
+                if (!rows.hasNext()) {
+                    return false;
+                }
+                pendingLine = rows.getCurrentLocation().getLineNr();
+                try {
+                    pending = rows.next();
+                } catch (RuntimeJsonMappingException e) {
+                    pendingError = e.getMessage();
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * A bank statement exported as CSV with a header line, one transfer per line. The invoiceNumber, amount and
+     * bankAccountNumber columns are read, any other column of the export is ignored. Transfers are numbered by line.
+     */
+    static Iterator<StatementTransfer> statementCsv(InputStream body) {
+        MappingIterator<PayInvoiceCommand> rows = readRows(STATEMENT_READER, body);
+        return new LookaheadIterator<>() {
+            @Override
+            StatementTransfer computeNext() {
+                if (!rows.hasNext()) {
+                    return null;
+                }
+                int line = rows.getCurrentLocation().getLineNr();
+                try {
+                    return StatementTransfer.read(line, rows.next());
+                } catch (RuntimeJsonMappingException e) {
+                    return StatementTransfer.unreadable(line, e.getMessage());
+                }
+            }
+        };
+    }
+
+    private static <T> MappingIterator<T> readRows(ObjectReader reader, InputStream body) {
+        try {
+            return reader.readValues(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private abstract static class LookaheadIterator<T> implements Iterator<T> {
+        private T next;
+
+        abstract T computeNext() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = computeNext();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T current = next;
+            next = null;
+            return current;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A record of an import file: the command read from it, or the reason it could not be read.
+ */
+@Getter
+@AllArgsConstructor
+class InvoiceImportRecord {
+    private int number;
+    private CreateNewInvoiceCommand command;
+    private String error;
+
+    static InvoiceImportRecord read(int number, CreateNewInvoiceCommand command) {
+        return new InvoiceImportRecord(number, command, null);
+    }
+
+    static InvoiceImportRecord unreadable(int number, String error) {
+        return new InvoiceImportRecord(number, null, error);
+    }
+}
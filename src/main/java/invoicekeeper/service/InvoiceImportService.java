@@ -0,0 +1,215 @@
+package invoicekeeper.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import invoicekeeper.dtos.ChangeEventType;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceImportReportDto;
+import invoicekeeper.dtos.InvoiceImportResultDto;
+import invoicekeeper.dtos.InvoiceImportStatus;
+import invoicekeeper.mappers.InvoiceMapper;
+import invoicekeeper.model.Company;
+import invoicekeeper.model.Invoice;
+import invoicekeeper.repositories.ChangeEventRepository;
+import invoicekeeper.repositories.CompanyNameIndexRepository;
+import invoicekeeper.repositories.InvoiceBatchRepository;
+import invoicekeeper.repositories.ItemNameIndexRepository;
+import invoicekeeper.repositories.ReceivablesRepository;
+import invoicekeeper.validators.Violation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk invoice import. Records are read lazily and written in batches of the configured size, each batch in its own
+ * transaction: one query finds the already saved invoice numbers, one resolves the companies not seen before in the
+ * import, and the companies, invoices, items, item name trigrams and receivables are each written with a single JDBC
+ * batch.
+ */
+@Service
+@Slf4j
+public class InvoiceImportService {
+    private final InvoiceBatchRepository invoiceBatchRepository;
+    private final ItemNameIndexRepository itemNameIndexRepository;
+    private final CompanyNameIndexRepository companyNameIndexRepository;
+    private final ReceivablesRepository receivablesRepository;
+    private final ChangeEventRepository changeEventRepository;
+    private final CompanyCache companyCache;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+    private final InvoiceMapper invoiceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public InvoiceImportService(InvoiceBatchRepository invoiceBatchRepository, ItemNameIndexRepository itemNameIndexRepository,
+                                CompanyNameIndexRepository companyNameIndexRepository,
+                                ReceivablesRepository receivablesRepository, ChangeEventRepository changeEventRepository, CompanyCache companyCache, SecondLevelCacheEvictor secondLevelCacheEvictor,
+                                InvoiceMapper invoiceMapper, TransactionTemplate transactionTemplate, Validator validator,
+                                ObjectMapper objectMapper, @Value("${invoicekeeper.import.batch-size:1000}") int batchSize) {
+        this.invoiceBatchRepository = invoiceBatchRepository;
+        this.itemNameIndexRepository = itemNameIndexRepository;
+        this.companyNameIndexRepository = companyNameIndexRepository;
+        this.receivablesRepository = receivablesRepository;
+        this.changeEventRepository = changeEventRepository;
+        this.companyCache = companyCache;
+        this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+        this.invoiceMapper = invoiceMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public InvoiceImportReportDto importNdjson(InputStream body) {
+        return importRecords(InvoiceImportReaders.ndjson(objectMapper, body));
+    }
+
+    public InvoiceImportReportDto importCsv(InputStream body) {
+        return importRecords(InvoiceImportReaders.csv(body));
+    }
+
+    private InvoiceImportReportDto importRecords(Iterator<InvoiceImportRecord> records) {
+        ImportRun run = new ImportRun();
+        List<InvoiceImportRecord> batch = new ArrayList<>(batchSize);
+        while (records.hasNext()) {
+            batch.add(records.next());
+            if (batch.size() == batchSize) {
+                importBatch(batch, run);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            importBatch(batch, run);
+        }
+        run.results.sort(Comparator.comparingInt(InvoiceImportResultDto::getRecord));
+        return InvoiceImportReportDto.of(run.results);
+    }
+
+    private void importBatch(List<InvoiceImportRecord> batch, ImportRun run) {
+        Map<String, InvoiceImportRecord> accepted = new LinkedHashMap<>();
+        for (InvoiceImportRecord record : batch) {
+            List<Violation> violations = validate(record, run);
+            if (violations.isEmpty()) {
+                accepted.put(record.getCommand().getInvoiceNumber(), record);
+            } else {
+                run.results.add(result(record, InvoiceImportStatus.REJECTED, violations));
+            }
+        }
+        for (String invoiceNumber : invoiceBatchRepository.findExistingInvoiceNumbers(accepted.keySet())) {
+            InvoiceImportRecord record = accepted.remove(invoiceNumber);
+            run.results.add(result(record, InvoiceImportStatus.REJECTED, List.of(new Violation("invoiceNumber",
+                    String.format("Invoice with invoice number %s already exists.", invoiceNumber)))));
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+        List<CreateNewInvoiceCommand> commands = accepted.values().stream()
+                .map(InvoiceImportRecord::getCommand)
+                .collect(Collectors.toList());
+        try {
+            Map<String, Long> newCompanyIds = transactionTemplate.execute(status -> writeBatch(commands, run.companyIds));
+            run.companyIds.putAll(newCompanyIds);
+            accepted.values().forEach(record -> run.results.add(result(record, InvoiceImportStatus.IMPORTED, List.of())));
+        } catch (DataAccessException e) {
+            log.error("Writing a batch of {} imported invoices failed", accepted.size(), e);
+            run.invoiceNumbers.removeAll(accepted.keySet());
+            List<Violation> violations = List.of(new Violation("batch", "The batch could not be written, none of its invoices were imported."));
+            accepted.values().forEach(record -> run.results.add(result(record, InvoiceImportStatus.FAILED, violations)));
+        }
+    }
+
+    private Map<String, Long> writeBatch(List<CreateNewInvoiceCommand> commands, Map<String, Long> knownCompanyIds) {
+        Set<String> unknownVatNumbers = commands.stream()
+                .map(CreateNewInvoiceCommand::getVatNumber)
+                .filter(vatNumber -> !knownCompanyIds.containsKey(vatNumber))
+                .collect(Collectors.toSet());
+        Map<String, Long> newCompanyIds = invoiceBatchRepository.findCompanyIdsByVatNumbers(unknownVatNumbers);
+        Map<String, Company> missingCompanies = new LinkedHashMap<>();
+        for (CreateNewInvoiceCommand command : commands) {
+            if (unknownVatNumbers.contains(command.getVatNumber()) && !newCompanyIds.containsKey(command.getVatNumber())) {
+                missingCompanies.putIfAbsent(command.getVatNumber(),
+                        new Company(command.getCompanyName(), command.getVatNumber(), command.getBankAccountNumber()));
+            }
+        }
+        if (!missingCompanies.isEmpty()) {
+            invoiceBatchRepository.insertCompanies(missingCompanies.values());
+            companyCache.evictAll(missingCompanies.keySet());
+            newCompanyIds.putAll(invoiceBatchRepository.findCompanyIdsByVatNumbers(missingCompanies.keySet()));
+            missingCompanies.forEach((vatNumber, company) -> company.setId(newCompanyIds.get(vatNumber)));
+            companyNameIndexRepository.indexAll(missingCompanies.values());
+            changeEventRepository.addCompanyEvents(ChangeEventType.COMPANY_CREATED, missingCompanies.values());
+        }
+
+        List<Invoice> invoices = new ArrayList<>(commands.size());
+        for (CreateNewInvoiceCommand command : commands) {
+            Company company = new Company();
+            company.setId(knownCompanyIds.getOrDefault(command.getVatNumber(), newCompanyIds.get(command.getVatNumber())));
+            Invoice invoice = invoiceMapper.toEntity(command);
+            invoice.setCompany(company);
+            invoices.add(invoice);
+        }
+        Set<Long> companyIds = invoices.stream()
+                .map(invoice -> invoice.getCompany().getId())
+                .collect(Collectors.toSet());
+        invoiceBatchRepository.incrementCompanyVersions(companyIds);
+        invoiceBatchRepository.insertInvoices(invoices);
+        List<String> archivedNumbers = invoiceBatchRepository.lockArchivedInvoiceNumbers(
+                commands.stream().map(CreateNewInvoiceCommand::getInvoiceNumber).collect(Collectors.toList()));
+        if (!archivedNumbers.isEmpty()) {
+            throw new DuplicateKeyException("Invoices archived while the batch was written: " + archivedNumbers);
+        }
+        secondLevelCacheEvictor.evictCompanies(companyIds);
+        secondLevelCacheEvictor.evictQueryResults();
+        itemNameIndexRepository.indexAll(invoices);
+        receivablesRepository.addAll(invoices);
+        changeEventRepository.addInvoiceEvents(ChangeEventType.INVOICE_CREATED, invoices);
+        return newCompanyIds;
+    }
+
+    private List<Violation> validate(InvoiceImportRecord record, ImportRun run) {
+        if (record.getError() != null) {
+            return List.of(new Violation("record", record.getError()));
+        }
+        List<Violation> violations = new ArrayList<>();
+        for (ConstraintViolation<CreateNewInvoiceCommand> violation : validator.validate(record.getCommand())) {
+            violations.add(new Violation(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        if (violations.isEmpty() && !run.invoiceNumbers.add(record.getCommand().getInvoiceNumber())) {
+            violations.add(new Violation("invoiceNumber", String.format("Invoice number %s occurs more than once in the import.",
+                    record.getCommand().getInvoiceNumber())));
+        }
+        return violations;
+    }
+
+    private InvoiceImportResultDto result(InvoiceImportRecord record, InvoiceImportStatus status, List<Violation> violations) {
+        String invoiceNumber = record.getCommand() == null ? null : record.getCommand().getInvoiceNumber();
+        return new InvoiceImportResultDto(record.getNumber(), invoiceNumber, status, violations);
+    }
+
+    /**
+     * State kept across the batches of one import: invoice numbers already taken by earlier records and the ids of the
+     * companies already resolved.
+     */
+    private static class ImportRun {
+        private final Set<String> invoiceNumbers = new HashSet<>();
+        private final Map<String, Long> companyIds = new HashMap<>();
+        private final List<InvoiceImportResultDto> results = new ArrayList<>();
+    }
+}
@@ -2,75 +2,298 @@ package invoicekeeper.service;
 
 import invoicekeeper.dtos.*;
 import invoicekeeper.exceptions.*;
+import invoicekeeper.model.ArchivedInvoice;
 import invoicekeeper.model.Company;
 import invoicekeeper.model.Invoice;
 import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.repositories.ArchivedInvoiceRepository;
+import invoicekeeper.repositories.ChangeEventRepository;
+import invoicekeeper.repositories.CompanyNameIndexRepository;
 import invoicekeeper.repositories.CompanyRepository;
+import invoicekeeper.repositories.InvoiceArchiveRepository;
+import invoicekeeper.repositories.InvoiceBatchRepository;
 import invoicekeeper.repositories.InvoiceRepository;
+import invoicekeeper.repositories.ItemNameIndexRepository;
+import invoicekeeper.repositories.ReceivablesRepository;
+import invoicekeeper.mappers.CompanyMapper;
+import invoicekeeper.mappers.InvoiceMapper;
+import io.micrometer.core.annotation.Timed;
 import lombok.AllArgsConstructor;
-import org.modelmapper.ModelMapper;
-import org.modelmapper.TypeToken;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.transaction.Transactional;
-import java.lang.reflect.Type;
+import javax.persistence.EntityManager;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
+@Timed(value = "invoicekeeper.service", description = "Calls of the invoicing service.")
 public class InvoicingService {
+    private static final int DUPLICATE_ENTRY = 1062;
+    private static final Pattern DUPLICATE_KEY = Pattern.compile("for key '(?:[^']*\\.)?([^'.]+)'");
+    private static final String INVOICE_NUMBER_KEY = "uk_invoices_invoice_number";
+    private static final String VAT_NUMBER_KEY = "uk_companies_vat_number";
+
     private InvoiceRepository invoiceRepository;
+    private ArchivedInvoiceRepository archivedInvoiceRepository;
+    private InvoiceArchiveRepository invoiceArchiveRepository;
     private CompanyRepository companyRepository;
-    private ModelMapper modelMapper;
+    private ItemNameIndexRepository itemNameIndexRepository;
+    private CompanyNameIndexRepository companyNameIndexRepository;
+    private ReceivablesRepository receivablesRepository;
+    private InvoiceBatchRepository invoiceBatchRepository;
+    private CompanyCache companyCache;
+    private SecondLevelCacheEvictor secondLevelCacheEvictor;
+    private ChangeEventRepository changeEventRepository;
+    private InvoiceMapper invoiceMapper;
+    private CompanyMapper companyMapper;
+    private EntityManager entityManager;
+    private OptimisticLockRetry optimisticLockRetry;
+    private TransactionTemplate transactionTemplate;
 
-    @Transactional
+    /**
+     * The company of the invoice is looked up in the cache and inserted when unknown. A concurrent request saving the
+     * first invoice of the same company, or a cached entry from before the company was saved, makes the insert fail on
+     * the VAT number; the invoice is then saved once more in a new transaction, with the company existing by then.
+     */
     public InvoiceDto saveNewInvoice(CreateNewInvoiceCommand command) {
-        checkIfInvoiceAlreadyExists(command.getInvoiceNumber());
-        Invoice newInvoice = checkForExistingCompanyThenSave(command);
-        InvoiceDto resultDto = modelMapper.map(newInvoice, InvoiceDto.class);
-        resultDto.setCompanyName(newInvoice.getCompany().getCompanyName());
-        return resultDto;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return saveNewInvoiceWithCompany(command);
+        }
+        try {
+            return transactionTemplate.execute(status -> saveNewInvoiceWithCompany(command));
+        } catch (CompanyWithVatNumberAlreadyExistsException e) {
+            companyCache.evict(command.getVatNumber());
+            return transactionTemplate.execute(status -> saveNewInvoiceWithCompany(command));
+        }
     }
 
-    @Transactional
+    private InvoiceDto saveNewInvoiceWithCompany(CreateNewInvoiceCommand command) {
+        Invoice newInvoice = invoiceMapper.toEntity(command);
+        String companyName = checkForExistingCompanyThenSave(command, newInvoice);
+        itemNameIndexRepository.index(newInvoice.getId(), newInvoice.getItems());
+        receivablesRepository.add(newInvoice);
+        changeEventRepository.addInvoiceEvent(ChangeEventType.INVOICE_CREATED, newInvoice);
+        return invoiceMapper.toDto(newInvoice, companyName);
+    }
+
+    /**
+     * Archived invoices are all paid, paying one is checked like paying a paid invoice again and changes nothing.
+     * Concurrent payments of the invoice are caught by its version, a concurrent change of the bank account number of
+     * the company by marking the company changed only while the number is still the one checked; the payment is then
+     * retried on the new state.
+     */
     public InvoiceDto payInvoice(PayInvoiceCommand command) {
-        Invoice invoiceFound = invoiceRepository.findByInvoiceNumber(command.getInvoiceNumber())
-                .orElseThrow(() -> new InvoiceNotFoundException(command.getInvoiceNumber()));
-        validatePaymentData(invoiceFound, command);
-        invoiceFound.setPaymentStatus(PaymentStatus.PAYED);
-        InvoiceDto resultDto = modelMapper.map(invoiceFound, InvoiceDto.class);
-        resultDto.setCompanyName(invoiceFound.getCompany().getCompanyName());
-        return resultDto;
+        return optimisticLockRetry.execute("payInvoice", () -> {
+            Invoice invoiceFound = invoiceRepository.findByInvoiceNumber(command.getInvoiceNumber())
+                    .or(() -> archivedInvoiceRepository.findByInvoiceNumber(command.getInvoiceNumber()).map(ArchivedInvoice::toInvoice))
+                    .orElseThrow(() -> new InvoiceNotFoundException(command.getInvoiceNumber()));
+            validatePaymentData(invoiceFound, command);
+            if (invoiceFound.getPaymentStatus() == PaymentStatus.UNPAYED) {
+                incrementCompanyVersion(invoiceFound.getCompany());
+                receivablesRepository.markPaid(invoiceFound);
+                changeEventRepository.addInvoiceEvent(ChangeEventType.INVOICE_PAID, invoiceFound);
+            }
+            invoiceFound.setPaymentStatus(PaymentStatus.PAYED);
+            return invoiceMapper.toDto(invoiceFound);
+        });
     }
 
+    @Transactional(readOnly = true)
     public InvoiceDto getInvoiceById(long id) {
-        Invoice invoiceFound = findInvoiceById(id);
-        return modelMapper.map(invoiceFound, InvoiceDto.class);
+        List<InvoiceRow> rows = invoiceRepository.findRowsById(id);
+        if (rows.isEmpty()) {
+            rows = archivedInvoiceRepository.findRowsById(id);
+        }
+        return toDtos(List.of(id), rows).stream()
+                .findFirst()
+                .orElseThrow(() -> new InvoiceNotFoundException(id));
+    }
+
+    /**
+     * ETag of an invoice from its version only, checked before the invoice is loaded and mapped.
+     */
+    @Transactional(readOnly = true)
+    public String getInvoiceETag(long id) {
+        return invoiceRepository.findVersionById(id)
+                .or(() -> archivedInvoiceRepository.findVersionById(id))
+                .map(String::valueOf)
+                .orElseThrow(() -> new InvoiceNotFoundException(id));
+    }
+
+    @Transactional(readOnly = true)
+    public String getInvoicePageETag(InvoiceFilter filter, Optional<String> cursor, int pageSize, boolean includeArchived) {
+        return findInvoicePageETag(Optional.empty(), Optional.ofNullable(filter.getCompanyName()), Optional.ofNullable(filter.getVatNumber()),
+                filter, cursor, pageSize, includeArchived);
+    }
+
+    @Transactional(readOnly = true)
+    public String getCompanyInvoicePageETag(long id, InvoiceStatusFilter filter, Optional<String> cursor, int pageSize,
+                                            boolean includeArchived) {
+        if (companyRepository.findVersionById(id).isEmpty()) {
+            throw new CompanyNotFoundException(id);
+        }
+        return findInvoicePageETag(Optional.of(id), Optional.empty(), Optional.empty(), filter, cursor, pageSize, includeArchived);
+    }
+
+    private String findInvoicePageETag(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                       InvoiceStatusFilter filter, Optional<String> cursor, int pageSize, boolean includeArchived) {
+        Optional<InvoiceCursor> after = cursor.map(InvoiceCursor::decode);
+        LocalDate today = LocalDate.now();
+        if (includeArchived) {
+            return invoiceArchiveRepository.findHistoryVersionStamp(companyId, companyName, vatNumber,
+                    Optional.ofNullable(filter.getIssuedAfter()), dueAfter(filter, today), dueBefore(filter, today),
+                    Optional.ofNullable(filter.getPaymentStatus()),
+                    after.map(InvoiceCursor::getIssueDate), after.map(InvoiceCursor::getId), pageSize).toETag();
+        }
+        return VersionStamp.of(invoiceRepository.findPageVersions(companyId, companyName, vatNumber,
+                Optional.ofNullable(filter.getIssuedAfter()), dueAfter(filter, today), dueBefore(filter, today),
+                Optional.ofNullable(filter.getPaymentStatus()).map(PaymentStatus::name),
+                after.map(InvoiceCursor::getIssueDate), after.map(InvoiceCursor::getId), pageSize)).toETag();
+    }
+
+    @Transactional(readOnly = true)
+    public InvoicePageDto getAllInvoices(InvoiceFilter filter, Optional<String> cursor, int pageSize, boolean includeArchived) {
+        return findInvoicePage(Optional.empty(), Optional.ofNullable(filter.getCompanyName()), Optional.ofNullable(filter.getVatNumber()),
+                filter, cursor, pageSize, includeArchived);
+    }
+
+    @Transactional(readOnly = true)
+    public InvoicePageDto getInvoicesOfCompany(long id, InvoiceStatusFilter filter, Optional<String> cursor, int pageSize,
+                                               boolean includeArchived) {
+        if (!companyRepository.existsById(id)) {
+            throw new CompanyNotFoundException(id);
+        }
+        return findInvoicePage(Optional.of(id), Optional.empty(), Optional.empty(), filter, cursor, pageSize, includeArchived);
+    }
+
+    /**
+     * A page of the hot invoices, or of the invoice history when the archived ones are included too.
+     */
+    private InvoicePageDto findInvoicePage(Optional<Long> companyId, Optional<String> companyName, Optional<String> vatNumber,
+                                           InvoiceStatusFilter filter, Optional<String> cursor, int pageSize, boolean includeArchived) {
+        Optional<InvoiceCursor> after = cursor.map(InvoiceCursor::decode);
+        LocalDate today = LocalDate.now();
+        List<Long> ids;
+        if (includeArchived) {
+            ids = invoiceArchiveRepository.findHistoryIds(companyId, companyName, vatNumber,
+                    Optional.ofNullable(filter.getIssuedAfter()), dueAfter(filter, today), dueBefore(filter, today),
+                    Optional.ofNullable(filter.getPaymentStatus()),
+                    after.map(InvoiceCursor::getIssueDate), after.map(InvoiceCursor::getId), pageSize);
+        } else {
+            ids = invoiceRepository.findIdsByParameters(companyId, companyName, vatNumber,
+                    Optional.ofNullable(filter.getIssuedAfter()), dueAfter(filter, today), dueBefore(filter, today),
+                    Optional.ofNullable(filter.getPaymentStatus()),
+                    after.map(InvoiceCursor::getIssueDate), after.map(InvoiceCursor::getId), PageRequest.of(0, pageSize));
+        }
+        List<InvoiceDto> page = includeArchived ? findHistoryByIds(ids) : findInvoicesByIds(ids);
+        String nextCursor = ids.size() < pageSize ? null : InvoiceCursor.of(page.get(page.size() - 1)).encode();
+        return new InvoicePageDto(page, nextCursor);
     }
 
-    public List<InvoiceDto> getAllInvoices(Optional<String> companyName, Optional<String> vatNumber,
-                                           Optional<LocalDate> issuedAfter, Optional<String> overDue) {
-        List<Invoice> filtered = invoiceRepository.findInvoicesByParameters(companyName, vatNumber, issuedAfter);
-        if (overDue.isPresent()) {
-            filtered = filterOverdueInvoices(filtered, overDue.get());
+    @Transactional(readOnly = true)
+    public void streamAllInvoices(InvoiceFilter filter, Consumer<InvoiceDto> consumer) {
+        LocalDate today = LocalDate.now();
+        try (Stream<Invoice> invoices = invoiceRepository.streamInvoicesByParameters(Optional.empty(), Optional.ofNullable(filter.getCompanyName()),
+                Optional.ofNullable(filter.getVatNumber()), Optional.ofNullable(filter.getIssuedAfter()),
+                dueAfter(filter, today), dueBefore(filter, today), Optional.ofNullable(filter.getPaymentStatus()))) {
+            invoices.forEach(invoice -> {
+                consumer.accept(invoiceMapper.toDto(invoice));
+                entityManager.detach(invoice);
+            });
         }
-        Type resultList = new TypeToken<List<InvoiceDto>>(){}.getType();
-        return modelMapper.map(filtered, resultList);
     }
 
-    public List<InvoiceDto> getInvoicesByItemName(String name) {
-        List<Invoice> invoices = invoiceRepository.findInvoiceByItemName(name);
-        Type resultList = new TypeToken<List<InvoiceDto>>(){}.getType();
-        return modelMapper.map(invoices, resultList);
+    @Transactional(readOnly = true)
+    public List<InvoiceDto> getInvoicesByItemName(String name, int page, int pageSize) {
+        return findInvoicesByIds(itemNameIndexRepository.findInvoiceIdsByItemName(name, page, pageSize));
+    }
+
+    private List<InvoiceDto> findInvoicesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toDtos(ids, invoiceRepository.findRowsByIds(ids));
+    }
+
+    /**
+     * The ids not found among the hot invoices are read from the archive.
+     */
+    private List<InvoiceDto> findHistoryByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<InvoiceRow> rows = new ArrayList<>(invoiceRepository.findRowsByIds(ids));
+        Set<Long> hotIds = rows.stream()
+                .map(InvoiceRow::getId)
+                .collect(Collectors.toSet());
+        List<Long> archivedIds = ids.stream()
+                .filter(id -> !hotIds.contains(id))
+                .collect(Collectors.toList());
+        if (!archivedIds.isEmpty()) {
+            rows.addAll(archivedInvoiceRepository.findRowsByIds(archivedIds));
+        }
+        return toDtos(ids, rows);
+    }
+
+    /**
+     * Invoices in the order of the ids, built from their rows joined with the items, so reads neither load entities
+     * into the persistence context nor keep snapshots of them for dirty checking.
+     */
+    private List<InvoiceDto> toDtos(List<Long> ids, List<InvoiceRow> rows) {
+        Map<Long, InvoiceDto> invoicesById = new HashMap<>();
+        for (InvoiceRow row : rows) {
+            InvoiceDto invoice = invoicesById.computeIfAbsent(row.getId(), id -> row.toDto());
+            if (row.hasItem()) {
+                invoice.getItems().add(row.toItem());
+            }
+        }
+        return ids.stream()
+                .map(invoicesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Transactional
     public boolean deleteInvoiceById(long id) {
-        invoiceRepository.deleteById(id);
+        Optional<Invoice> invoiceFound = invoiceRepository.findById(id);
+        if (invoiceFound.isEmpty()) {
+            return deleteArchivedInvoiceById(id);
+        }
+        incrementCompanyVersion(invoiceFound.get().getCompany().getId());
+        receivablesRepository.remove(invoiceFound.get());
+        changeEventRepository.addInvoiceEvent(ChangeEventType.INVOICE_DELETED, invoiceFound.get());
+        invoiceRepository.delete(invoiceFound.get());
+        return true;
+    }
+
+    private boolean deleteArchivedInvoiceById(long id) {
+        ArchivedInvoice invoiceFound = archivedInvoiceRepository.findById(id)
+                .orElseThrow(() -> new InvoiceNotFoundException(id));
+        long companyId = invoiceFound.getCompany().getId();
+        incrementCompanyVersion(companyId);
+        receivablesRepository.remove(invoiceFound.toInvoice());
+        changeEventRepository.addInvoiceEvent(ChangeEventType.INVOICE_DELETED, invoiceFound.toInvoice());
+        invoiceArchiveRepository.deleteArchived(id, companyId);
+        secondLevelCacheEvictor.evictQueryResults();
         return true;
     }
 
@@ -78,86 +301,139 @@ public class InvoicingService {
 
     @Transactional
     public CompanyDto addNewCompany(AddNewCompanyCommand command) {
-        checkIfCompanyAlreadyExists(command.getVatNumber());
-        Company newCompany = modelMapper.map(command, Company.class);
-        companyRepository.save(newCompany);
-        return modelMapper.map(newCompany, CompanyDto.class);
+        Company newCompany = companyMapper.toEntity(command);
+        saveUnique(() -> companyRepository.save(newCompany), null, newCompany.getVatNumber());
+        companyNameIndexRepository.index(newCompany.getId(), newCompany.getCompanyName());
+        companyCache.evict(newCompany.getVatNumber());
+        changeEventRepository.addCompanyEvent(ChangeEventType.COMPANY_CREATED, newCompany.getId());
+        return companyMapper.toDto(newCompany);
     }
 
     @Transactional
     public CompanyDto addNewInvoiceToCompany(long id, AddNewInvoiceCommand command) {
-        checkIfInvoiceAlreadyExists(command.getInvoiceNumber());
-        Invoice newInvoice = modelMapper.map(command, Invoice.class);
+        Invoice newInvoice = invoiceMapper.toEntity(command);
         Company companyFound = findCompanyById(id);
+        incrementCompanyVersion(id);
         newInvoice.setCompany(companyFound);
-        invoiceRepository.save(newInvoice);
-        CompanyDto resultDto = modelMapper.map(companyFound, CompanyDto.class);
-        resultDto.setCompanyName(companyFound.getCompanyName());
-        return resultDto;
+        saveUnique(() -> invoiceRepository.save(newInvoice), newInvoice.getInvoiceNumber(), null);
+        itemNameIndexRepository.index(newInvoice.getId(), newInvoice.getItems());
+        receivablesRepository.add(newInvoice);
+        changeEventRepository.addInvoiceEvent(ChangeEventType.INVOICE_CREATED, newInvoice);
+        return findCompanySummary(id);
     }
 
-    @Transactional
+    /**
+     * Fails on the version of the company when a payment or another change has written it since it was read, and is
+     * retried on the new state.
+     */
     public CompanyDto updateAccountNumber(long id, UpdateAccountNumberCommand command) {
-        Company companyFound = companyRepository.findById(id)
-                .orElseThrow(() -> new CompanyNotFoundException(id));
-        companyFound.setBankAccountNumber(command.getBankAccountNumber());
-        return modelMapper.map(companyFound, CompanyDto.class);
+        return optimisticLockRetry.execute("updateAccountNumber", () -> {
+            Company companyFound = companyRepository.findById(id)
+                    .orElseThrow(() -> new CompanyNotFoundException(id));
+            companyFound.setBankAccountNumber(command.getBankAccountNumber());
+            companyCache.evict(companyFound.getVatNumber());
+            changeEventRepository.addCompanyEvent(ChangeEventType.COMPANY_UPDATED, id);
+            return findCompanySummary(id);
+        });
     }
 
+    @Transactional(readOnly = true)
     public CompanyDto getCompanyById(long id) {
-        return modelMapper.map(findCompanyById(id), CompanyDto.class);
+        return findCompanySummary(id);
     }
 
+    @Transactional(readOnly = true)
     public CompanyDto getCompanyByVatNumber(String vatNumber) {
-        Company companyFound = companyRepository.findCompanyByVatNumber(vatNumber)
+        return companyCache.findByVatNumber(vatNumber)
+                .flatMap(company -> companyRepository.findCompanySummaryById(company.getId()))
                 .orElseThrow(() -> new CompanyNotFoundException(vatNumber));
-        return modelMapper.map(companyFound, CompanyDto.class);
     }
 
+    /**
+     * ETag of a company summary from the version of the company, which every write of its invoices increases too.
+     */
+    @Transactional(readOnly = true)
+    public String getCompanyETag(long id) {
+        return companyRepository.findVersionById(id)
+                .map(String::valueOf)
+                .orElseThrow(() -> new CompanyNotFoundException(id));
+    }
+
+    @Transactional(readOnly = true)
+    public String getCompanyETagByVatNumber(String vatNumber) {
+        return companyCache.findByVatNumber(vatNumber)
+                .flatMap(company -> companyRepository.findVersionById(company.getId()))
+                .map(String::valueOf)
+                .orElseThrow(() -> new CompanyNotFoundException(vatNumber));
+    }
+
+    @Transactional(readOnly = true)
+    public String getCompaniesETag(Optional<String> searchName) {
+        return VersionStamp.of(companyRepository.findVersions(searchName)).toETag();
+    }
+
+    @Transactional(readOnly = true)
     public List<CompanyDto> findAllCompanies(Optional<String> searchName) {
-        List<Company> companiesFound = companyRepository.findAllCompanies(searchName);
-        Type resultList = new TypeToken<List<CompanyDto>>(){}.getType();
-        return modelMapper.map(companiesFound, resultList);
+        return companyRepository.findCompanySummaries(searchName);
     }
 
-    @Transactional
-    public boolean deleteCompanyById(long id) {
-        Company companyFound = findCompanyById(id);
-        companyRepository.delete(companyFound);
-        return true;
+    @Transactional(readOnly = true)
+    public List<CompanySuggestionDto> suggestCompanies(String text, int limit) {
+        return companyNameIndexRepository.findSuggestions(text, limit);
     }
 
-    private Invoice checkForExistingCompanyThenSave(CreateNewInvoiceCommand command) {
-        Optional<Company> companyFound = companyRepository.findCompanyByVatNumber(command.getVatNumber());
-        Invoice newInvoice = modelMapper.map(command, Invoice.class);
+    private String checkForExistingCompanyThenSave(CreateNewInvoiceCommand command, Invoice newInvoice) {
+        Optional<CompanySnapshot> companyFound = companyCache.findByVatNumber(command.getVatNumber());
         if (companyFound.isPresent()) {
-            newInvoice.setCompany(companyFound.get());
-            invoiceRepository.save(newInvoice);
-        } else {
-            Company newCompany = new Company(command.getCompanyName(), command.getVatNumber(), command.getBankAccountNumber());
-            newCompany.addInvoice(newInvoice);
-            companyRepository.save(newCompany);
-        }
-        return newInvoice;
-    }
-
-    private List<Invoice> filterOverdueInvoices(List<Invoice> invoices, String filterBy) {
-        if ("yes".equals(filterBy)) {
-            return invoices.stream()
-                    .filter(i -> i.getDueDate().isBefore(LocalDate.now()))
-                    .collect(Collectors.toList());
-        } else if ("no".equals(filterBy)) {
-            return invoices.stream()
-                    .filter(i -> !i.getDueDate().isBefore(LocalDate.now()))
-                    .collect(Collectors.toList());
-        } else {
-            return new ArrayList<>(invoices);
+            incrementCompanyVersion(companyFound.get().getId());
+            newInvoice.setCompany(companyRepository.getReferenceById(companyFound.get().getId()));
+            saveUnique(() -> invoiceRepository.save(newInvoice), newInvoice.getInvoiceNumber(), null);
+            return companyFound.get().getCompanyName();
         }
+        Company newCompany = new Company(command.getCompanyName(), command.getVatNumber(), command.getBankAccountNumber());
+        newCompany.addInvoice(newInvoice);
+        saveUnique(() -> companyRepository.save(newCompany), newInvoice.getInvoiceNumber(), newCompany.getVatNumber());
+        companyNameIndexRepository.index(newCompany.getId(), newCompany.getCompanyName());
+        companyCache.evict(newCompany.getVatNumber());
+        changeEventRepository.addCompanyEvent(ChangeEventType.COMPANY_CREATED, newCompany.getId());
+        return newCompany.getCompanyName();
     }
 
-    private Invoice findInvoiceById(long id) {
-        return invoiceRepository.findById(id)
-                .orElseThrow(() -> new InvoiceNotFoundException(id));
+    /**
+     * Called before an invoice of the company is written, the summary of the company changes with it.
+     */
+    private void incrementCompanyVersion(long id) {
+        invoiceBatchRepository.incrementCompanyVersions(List.of(id));
+        secondLevelCacheEvictor.evictCompanies(List.of(id));
+    }
+
+    private void incrementCompanyVersion(Company company) {
+        if (!invoiceBatchRepository.incrementCompanyVersion(company.getId(), company.getBankAccountNumber())) {
+            throw new ObjectOptimisticLockingFailureException(Company.class, company.getId());
+        }
+        secondLevelCacheEvictor.evictCompanies(List.of(company.getId()));
+    }
+
+    private CompanyDto findCompanySummary(long id) {
+        return companyRepository.findCompanySummaryById(id)
+                .orElseThrow(() -> new CompanyNotFoundException(id));
+    }
+
+    static Optional<LocalDate> dueAfter(InvoiceStatusFilter filter, LocalDate today) {
+        Optional<LocalDate> dueAfter = Optional.ofNullable(filter.getDueAfter());
+        if ("no".equals(filter.getIsOverDue())) {
+            LocalDate notOverdue = today.minusDays(1);
+            return Optional.of(dueAfter.filter(d -> d.isAfter(notOverdue)).orElse(notOverdue));
+        }
+        return dueAfter;
+    }
+
+    static Optional<LocalDate> dueBefore(InvoiceStatusFilter filter, LocalDate today) {
+        Optional<LocalDate> dueBefore = Optional.ofNullable(filter.getDueBefore());
+        if ("yes".equals(filter.getIsOverDue())) {
+            return Optional.of(dueBefore.filter(d -> d.isBefore(today)).orElse(today));
+        }
+        return dueBefore;
     }
 
     private Company findCompanyById(long id) {
@@ -165,16 +441,41 @@ public class InvoicingService {
                 .orElseThrow(() -> new CompanyNotFoundException(id));
     }
 
-    private void checkIfCompanyAlreadyExists(String vatNumber) {
-        if (companyRepository.findCompanyByVatNumber(vatNumber).isPresent()) {
-            throw new CompanyWithVatNumberAlreadyExistsException(vatNumber);
+    /**
+     * Uniqueness of invoice numbers and VAT numbers is left to the unique keys of the tables: the identity insert runs
+     * right in save, and a duplicate key is reported as the matching problem instead of a read before every insert.
+     * The numbers of the archived invoices, in a table of their own, are looked up after the insert: an invoice being
+     * archived holds its number in the key until it is committed to the archive.
+     */
+    private void saveUnique(Runnable save, String invoiceNumber, String vatNumber) {
+        try {
+            save.run();
+        } catch (DataIntegrityViolationException e) {
+            String key = duplicateKey(e).orElseThrow(() -> e);
+            if (invoiceNumber != null && key.equals(INVOICE_NUMBER_KEY)) {
+                throw new InvoiceWithNumberAlreadyExistsException(invoiceNumber);
+            }
+            if (vatNumber != null && key.equals(VAT_NUMBER_KEY)) {
+                throw new CompanyWithVatNumberAlreadyExistsException(vatNumber);
+            }
+            throw e;
+        }
+        if (invoiceNumber != null && invoiceArchiveRepository.lockByInvoiceNumber(invoiceNumber)) {
+            throw new InvoiceWithNumberAlreadyExistsException(invoiceNumber);
         }
     }
 
-    private void checkIfInvoiceAlreadyExists(String invoiceNumber) {
-        if (invoiceRepository.findByInvoiceNumber(invoiceNumber).isPresent()) {
-            throw new InvoiceWithNumberAlreadyExistsException(invoiceNumber);
+    /**
+     * The name of the unique key a duplicate entry error (1062) was raised by, empty for any other error.
+     */
+    private static Optional<String> duplicateKey(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLIntegrityConstraintViolationException violation && violation.getErrorCode() == DUPLICATE_ENTRY) {
+                Matcher key = DUPLICATE_KEY.matcher(violation.getMessage());
+                return key.find() ? Optional.of(key.group(1)) : Optional.empty();
+            }
         }
+        return Optional.empty();
     }
 
     private void validatePaymentData(Invoice invoice, PayInvoiceCommand command) {
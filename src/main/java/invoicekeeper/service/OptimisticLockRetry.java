@@ -0,0 +1,82 @@
+package invoicekeeper.service;
+
+import invoicekeeper.exceptions.ConcurrentUpdateException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs a read-modify-write in its own transaction, and again from the start when a concurrent transaction has changed
+ * the same rows since they were read, caught by the version checks at the writes. Before each new attempt it waits a
+ * random time below a limit doubling from the initial backoff up to the maximum, so the conflicting requests do not
+ * meet again in step. Called within a transaction of its caller it runs once, as the conflict would only show at the
+ * caller's commit. Every conflict is counted in invoicekeeper.optimistic-lock.conflicts, tagged by the operation and
+ * whether it was retried or the attempts were exhausted, which is reported as 409 Conflict.
+ */
+@Component
+@Slf4j
+public class OptimisticLockRetry {
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+
+    public OptimisticLockRetry(TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                               @Value("${invoicekeeper.optimistic-lock.max-attempts:10}") int maxAttempts,
+                               @Value("${invoicekeeper.optimistic-lock.initial-backoff:10ms}") Duration initialBackoff,
+                               @Value("${invoicekeeper.optimistic-lock.max-backoff:250ms}") Duration maxBackoff) {
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    conflicts(operation, "exhausted").increment();
+                    log.warn("{} gave up after {} conflicting attempts", operation, attempt, e);
+                    throw new ConcurrentUpdateException(attempt);
+                }
+                conflicts(operation, "retried").increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    private void backOff(int attempt) {
+        long limit = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 20));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentUpdateException(attempt);
+        }
+    }
+
+    private Counter conflicts(String operation, String outcome) {
+        return Counter.builder("invoicekeeper.optimistic-lock.conflicts")
+                .description("Transactions that failed on a concurrent change of the rows they wrote.")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
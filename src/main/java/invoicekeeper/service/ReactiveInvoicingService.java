@@ -0,0 +1,79 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.*;
+import invoicekeeper.exceptions.CompanyNotFoundException;
+import invoicekeeper.exceptions.InvoiceNotFoundException;
+import invoicekeeper.repositories.ReactiveCompanyRepository;
+import invoicekeeper.repositories.ReactiveInvoiceRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The read operations of {@link InvoicingService} on non-blocking database access: no thread waits for the database,
+ * and streamed results are read as fast as the client takes them. Writes stay with {@link InvoicingService}.
+ */
+@Service
+@AllArgsConstructor
+public class ReactiveInvoicingService {
+    private ReactiveInvoiceRepository invoiceRepository;
+    private ReactiveCompanyRepository companyRepository;
+
+    public Mono<InvoiceDto> getInvoiceById(long id) {
+        return invoiceRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new InvoiceNotFoundException(id)));
+    }
+
+    public Mono<InvoicePageDto> getAllInvoices(InvoiceFilter filter, Optional<String> cursor, int pageSize) {
+        Optional<InvoiceCursor> after = cursor.map(InvoiceCursor::decode);
+        LocalDate today = LocalDate.now();
+        return invoiceRepository.findInvoicesByParameters(Optional.empty(), Optional.ofNullable(filter.getCompanyName()),
+                        Optional.ofNullable(filter.getVatNumber()), Optional.ofNullable(filter.getIssuedAfter()),
+                        InvoicingService.dueAfter(filter, today), InvoicingService.dueBefore(filter, today),
+                        Optional.ofNullable(filter.getPaymentStatus()),
+                        after.map(InvoiceCursor::getIssueDate), after.map(InvoiceCursor::getId), pageSize)
+                .collectList()
+                .map(page -> new InvoicePageDto(page, nextCursor(page, pageSize)));
+    }
+
+    public Flux<InvoiceDto> streamAllInvoices(InvoiceFilter filter) {
+        LocalDate today = LocalDate.now();
+        return invoiceRepository.streamInvoicesByParameters(Optional.ofNullable(filter.getCompanyName()),
+                Optional.ofNullable(filter.getVatNumber()), Optional.ofNullable(filter.getIssuedAfter()),
+                InvoicingService.dueAfter(filter, today), InvoicingService.dueBefore(filter, today),
+                Optional.ofNullable(filter.getPaymentStatus()));
+    }
+
+    public Flux<InvoiceDto> getInvoicesByItemName(String name, int page, int pageSize) {
+        return invoiceRepository.findInvoiceIdsByItemName(name, page, pageSize)
+                .collectList()
+                .flatMapMany(invoiceRepository::findInvoicesWithItemsByIds);
+    }
+
+    public Mono<CompanyDto> getCompanyById(long id) {
+        return companyRepository.findCompanySummaryById(id)
+                .switchIfEmpty(Mono.error(() -> new CompanyNotFoundException(id)));
+    }
+
+    public Mono<CompanyDto> getCompanyByVatNumber(String vatNumber) {
+        return companyRepository.findCompanySummaryByVatNumber(vatNumber)
+                .switchIfEmpty(Mono.error(() -> new CompanyNotFoundException(vatNumber)));
+    }
+
+    public Flux<CompanyDto> findAllCompanies(Optional<String> searchName) {
+        return companyRepository.findCompanySummaries(searchName);
+    }
+
+    private String nextCursor(List<InvoiceDto> page, int pageSize) {
+        if (page.size() < pageSize) {
+            return null;
+        }
+        InvoiceDto last = page.get(page.size() - 1);
+        return new InvoiceCursor(last.getIssueDate(), last.getId()).encode();
+    }
+}
@@ -0,0 +1,24 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.repositories.ReceivablesRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+@AllArgsConstructor
+public class ReportService {
+    private ReceivablesRepository receivablesRepository;
+
+    public ReceivablesReportDto getReceivables() {
+        LocalDate today = LocalDate.now();
+        List<ReceivablesDto> companies = receivablesRepository.findReceivablesByCompany(today);
+        ReceivablesDto total = new ReceivablesDto();
+        companies.forEach(total::add);
+        return new ReceivablesReportDto(today, total, companies);
+    }
+}
@@ -0,0 +1,59 @@
+package invoicekeeper.service;
+
+import invoicekeeper.model.Company;
+import invoicekeeper.model.Invoice;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the Hibernate second-level cache in line with the writes Hibernate does not see: the JDBC batch statements and
+ * the version increments of companies. Like {@link CompanyCache}, the eviction is repeated after the transaction
+ * completes, so a concurrent read can not put the old state back. Does nothing while the cache is switched off.
+ */
+@Component
+public class SecondLevelCacheEvictor {
+    private static final String COMPANY_INVOICES = Company.class.getName() + ".invoices";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SecondLevelCacheEvictor(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * Evicts the companies with the lists of their invoices.
+     */
+    public void evictCompanies(Collection<Long> companyIds) {
+        evict(cache -> companyIds.forEach(id -> {
+            cache.evictEntityData(Company.class, id);
+            cache.evictCollectionData(COMPANY_INVOICES, id);
+        }));
+    }
+
+    public void evictInvoices(Collection<Long> invoiceIds) {
+        evict(cache -> invoiceIds.forEach(id -> cache.evictEntityData(Invoice.class, id)));
+    }
+
+    public void evictQueryResults() {
+        evict(Cache::evictQueryRegions);
+    }
+
+    private void evict(Consumer<Cache> eviction) {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        eviction.accept(cache);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.accept(cache);
+                }
+            });
+        }
+    }
+}
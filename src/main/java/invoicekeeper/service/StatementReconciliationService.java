@@ -0,0 +1,217 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.ChangeEventType;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReconciliationReportDto;
+import invoicekeeper.dtos.TransferResultDto;
+import invoicekeeper.dtos.TransferStatus;
+import invoicekeeper.model.Invoice;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.repositories.ChangeEventRepository;
+import invoicekeeper.repositories.InvoiceBatchRepository;
+import invoicekeeper.repositories.ReceivablesRepository;
+import invoicekeeper.validators.Violation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Pays invoices from a bank statement. Transfers are read lazily and matched in batches of the configured size, each
+ * batch in its own transaction: one query finds the invoices the transfers refer to, the payment rules of a single
+ * payment are applied to every transfer, and the invoices and receivables of the accepted ones are updated with a
+ * single JDBC batch each.
+ */
+@Service
+@Slf4j
+public class StatementReconciliationService {
+    private final InvoiceBatchRepository invoiceBatchRepository;
+    private final ReceivablesRepository receivablesRepository;
+    private final ChangeEventRepository changeEventRepository;
+    private final SecondLevelCacheEvictor secondLevelCacheEvictor;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final int batchSize;
+
+    public StatementReconciliationService(InvoiceBatchRepository invoiceBatchRepository, ReceivablesRepository receivablesRepository,
+                                          ChangeEventRepository changeEventRepository, SecondLevelCacheEvictor secondLevelCacheEvictor, TransactionTemplate transactionTemplate, Validator validator,
+                                          @Value("${invoicekeeper.reconciliation.batch-size:1000}") int batchSize) {
+        this.invoiceBatchRepository = invoiceBatchRepository;
+        this.receivablesRepository = receivablesRepository;
+        this.changeEventRepository = changeEventRepository;
+        this.secondLevelCacheEvictor = secondLevelCacheEvictor;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.batchSize = batchSize;
+    }
+
+    public ReconciliationReportDto reconcileCsv(InputStream body) {
+        Iterator<StatementTransfer> transfers = InvoiceImportReaders.statementCsv(body);
+        List<TransferResultDto> results = new ArrayList<>();
+        List<StatementTransfer> batch = new ArrayList<>(batchSize);
+        while (transfers.hasNext()) {
+            batch.add(transfers.next());
+            if (batch.size() == batchSize) {
+                reconcileBatch(batch, results);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            reconcileBatch(batch, results);
+        }
+        results.sort(Comparator.comparingInt(TransferResultDto::getRecord));
+        return ReconciliationReportDto.of(results);
+    }
+
+    private void reconcileBatch(List<StatementTransfer> batch, List<TransferResultDto> results) {
+        List<StatementTransfer> valid = new ArrayList<>();
+        for (StatementTransfer transfer : batch) {
+            List<Violation> violations = validate(transfer);
+            if (violations.isEmpty()) {
+                valid.add(transfer);
+            } else {
+                results.add(result(transfer, TransferStatus.REJECTED, violations));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        try {
+            results.addAll(transactionTemplate.execute(status -> payBatch(valid)));
+        } catch (DataAccessException e) {
+            log.error("Reconciling a batch of {} transfers failed", valid.size(), e);
+            List<Violation> violations = List.of(new Violation("batch", "The batch could not be reconciled, none of its transfers were booked."));
+            valid.forEach(transfer -> results.add(result(transfer, TransferStatus.FAILED, violations)));
+        }
+    }
+
+    private List<TransferResultDto> payBatch(List<StatementTransfer> transfers) {
+        Map<String, Invoice> invoices = invoiceBatchRepository.findInvoicesByNumbers(transfers.stream()
+                .map(transfer -> transfer.getPayment().getInvoiceNumber())
+                .collect(Collectors.toSet()));
+        List<TransferResultDto> results = new ArrayList<>();
+        List<StatementTransfer> accepted = new ArrayList<>();
+        List<Invoice> toPay = new ArrayList<>();
+        Set<String> paidInBatch = new HashSet<>();
+        for (StatementTransfer transfer : transfers) {
+            PayInvoiceCommand payment = transfer.getPayment();
+            Invoice invoice = invoices.get(payment.getInvoiceNumber());
+            if (invoice == null) {
+                results.add(result(transfer, TransferStatus.UNKNOWN, List.of(new Violation("invoiceNumber",
+                        String.format("Invoice with invoice number %s not found.", payment.getInvoiceNumber())))));
+                continue;
+            }
+            List<Violation> violations = checkPayment(invoice, payment, paidInBatch);
+            if (violations.isEmpty()) {
+                paidInBatch.add(invoice.getInvoiceNumber());
+                accepted.add(transfer);
+                toPay.add(invoice);
+            } else {
+                results.add(result(transfer, TransferStatus.REJECTED, violations));
+            }
+        }
+        if (toPay.isEmpty()) {
+            return results;
+        }
+        SortedMap<Long, String> bankAccountNumbers = new TreeMap<>();
+        toPay.forEach(invoice -> bankAccountNumbers.put(invoice.getCompany().getId(), invoice.getCompany().getBankAccountNumber()));
+        Set<Long> changedAccounts = invoiceBatchRepository.incrementCompanyVersions(bankAccountNumbers);
+        if (!changedAccounts.isEmpty()) {
+            rejectChangedAccounts(accepted, toPay, changedAccounts, results);
+            if (toPay.isEmpty()) {
+                return results;
+            }
+        }
+        Set<Long> companyIds = new HashSet<>(bankAccountNumbers.keySet());
+        companyIds.removeAll(changedAccounts);
+        Set<Invoice> paid = new HashSet<>(invoiceBatchRepository.markPaid(toPay));
+        receivablesRepository.markAllPaid(paid);
+        changeEventRepository.addInvoiceEvents(ChangeEventType.INVOICE_PAID, paid);
+        secondLevelCacheEvictor.evictCompanies(companyIds);
+        secondLevelCacheEvictor.evictInvoices(paid.stream().map(Invoice::getId).collect(Collectors.toList()));
+        secondLevelCacheEvictor.evictQueryResults();
+        for (int i = 0; i < accepted.size(); i++) {
+            if (paid.contains(toPay.get(i))) {
+                results.add(result(accepted.get(i), TransferStatus.MATCHED, List.of()));
+            } else {
+                results.add(result(accepted.get(i), TransferStatus.REJECTED, List.of(alreadyPaid(toPay.get(i)))));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Rejects the transfers to the companies whose bank account number has been changed since it was checked: the
+     * number on the transfer is not the one of the company any more.
+     */
+    private void rejectChangedAccounts(List<StatementTransfer> accepted, List<Invoice> toPay, Set<Long> changedAccounts,
+                                       List<TransferResultDto> results) {
+        for (int i = toPay.size() - 1; i >= 0; i--) {
+            if (changedAccounts.contains(toPay.get(i).getCompany().getId())) {
+                StatementTransfer transfer = accepted.remove(i);
+                toPay.remove(i);
+                results.add(result(transfer, TransferStatus.REJECTED, List.of(accountMismatch(transfer.getPayment()))));
+            }
+        }
+    }
+
+    /**
+     * The rules of paying a single invoice, except that paying an already paid invoice again is rejected: on a
+     * statement it is a duplicate transfer.
+     */
+    private List<Violation> checkPayment(Invoice invoice, PayInvoiceCommand payment, Set<String> paidInBatch) {
+        if (invoice.getPaymentStatus() == PaymentStatus.PAYED || paidInBatch.contains(invoice.getInvoiceNumber())) {
+            return List.of(alreadyPaid(invoice));
+        }
+        List<Violation> violations = new ArrayList<>();
+        if (payment.getAmount() > invoice.getAmount()) {
+            violations.add(new Violation("amount",
+                    String.format("You can not pay more than the invoice amount: %d.", invoice.getAmount())));
+        }
+        if (!payment.getBankAccountNumber().equals(invoice.getCompany().getBankAccountNumber())) {
+            violations.add(accountMismatch(payment));
+        }
+        return violations;
+    }
+
+    private Violation accountMismatch(PayInvoiceCommand payment) {
+        return new Violation("bankAccountNumber",
+                String.format("The bank account provided (%s) is not matching the bank account number of the company.",
+                        payment.getBankAccountNumber()));
+    }
+
+    private Violation alreadyPaid(Invoice invoice) {
+        return new Violation("invoiceNumber", String.format("Invoice with invoice number %s is already paid.", invoice.getInvoiceNumber()));
+    }
+
+    private List<Violation> validate(StatementTransfer transfer) {
+        if (transfer.getError() != null) {
+            return List.of(new Violation("record", transfer.getError()));
+        }
+        List<Violation> violations = new ArrayList<>();
+        for (ConstraintViolation<PayInvoiceCommand> violation : validator.validate(transfer.getPayment())) {
+            violations.add(new Violation(violation.getPropertyPath().toString(), violation.getMessage()));
+        }
+        return violations;
+    }
+
+    private TransferResultDto result(StatementTransfer transfer, TransferStatus status, List<Violation> violations) {
+        String invoiceNumber = transfer.getPayment() == null ? null : transfer.getPayment().getInvoiceNumber();
+        return new TransferResultDto(transfer.getNumber(), invoiceNumber, status, violations);
+    }
+}
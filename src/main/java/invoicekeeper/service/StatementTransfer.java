@@ -0,0 +1,24 @@
+package invoicekeeper.service;
+
+import invoicekeeper.dtos.PayInvoiceCommand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A transfer of a bank statement: the payment read from it, or the reason it could not be read.
+ */
+@Getter
+@AllArgsConstructor
+class StatementTransfer {
+    private int number;
+    private PayInvoiceCommand payment;
+    private String error;
+
+    static StatementTransfer read(int number, PayInvoiceCommand payment) {
+        return new StatementTransfer(number, payment, null);
+    }
+
+    static StatementTransfer unreadable(int number, String error) {
+        return new StatementTransfer(number, null, error);
+    }
+}
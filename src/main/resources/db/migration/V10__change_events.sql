@@ -0,0 +1,10 @@
+CREATE TABLE change_events
+(
+    event_id       BIGINT AUTO_INCREMENT NOT NULL,
+    event_type     VARCHAR(50)  NOT NULL,
+    company_id     BIGINT       NOT NULL,
+    invoice_id     BIGINT       NULL,
+    invoice_number VARCHAR(255) NULL,
+    created_at     TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    CONSTRAINT pk_change_events PRIMARY KEY (event_id)
+);
@@ -0,0 +1 @@
+CREATE INDEX idx_invoices_issue_date_id ON invoices (date_of_issue, invoice_id);
@@ -0,0 +1,2 @@
+CREATE INDEX idx_invoices_due_date_status ON invoices (due_date, payment_status);
+CREATE INDEX idx_invoices_company_issue_date ON invoices (company_id, date_of_issue);
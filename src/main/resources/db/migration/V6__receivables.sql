@@ -0,0 +1,21 @@
+CREATE TABLE receivables
+(
+    company_id    BIGINT NOT NULL,
+    due_date      date   NOT NULL,
+    unpaid_count  BIGINT NOT NULL,
+    unpaid_amount BIGINT NOT NULL,
+    paid_count    BIGINT NOT NULL,
+    paid_amount   BIGINT NOT NULL,
+    CONSTRAINT pk_receivables PRIMARY KEY (company_id, due_date),
+    CONSTRAINT fk_receivables_on_company FOREIGN KEY (company_id) REFERENCES companies (company_id) ON DELETE CASCADE
+);
+
+INSERT INTO receivables (company_id, due_date, unpaid_count, unpaid_amount, paid_count, paid_amount)
+SELECT company_id,
+       due_date,
+       SUM(CASE WHEN payment_status = 'UNPAYED' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'UNPAYED' THEN amount_total ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'PAYED' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'PAYED' THEN amount_total ELSE 0 END)
+FROM invoices
+GROUP BY company_id, due_date;
@@ -0,0 +1,2 @@
+ALTER TABLE invoices ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE companies ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,28 @@
+CREATE TABLE invoices_archive
+(
+    invoice_id     BIGINT       NOT NULL,
+    invoice_number VARCHAR(255) NOT NULL UNIQUE,
+    date_of_issue  date         NOT NULL,
+    due_date       date         NOT NULL,
+    payment_status VARCHAR(255) NOT NULL,
+    amount_total   INT          NOT NULL,
+    company_id     BIGINT       NOT NULL,
+    version        BIGINT       NOT NULL,
+    CONSTRAINT pk_invoices_archive PRIMARY KEY (invoice_id),
+    CONSTRAINT fk_invoices_archive_on_company FOREIGN KEY (company_id) REFERENCES companies (company_id)
+);
+
+CREATE INDEX idx_invoices_archive_issue_date_id ON invoices_archive (date_of_issue, invoice_id);
+CREATE INDEX idx_invoices_archive_company_issue_date ON invoices_archive (company_id, date_of_issue);
+
+CREATE TABLE items_on_invoices_archive
+(
+    invoice_id      BIGINT       NOT NULL,
+    name_of_item    VARCHAR(255) NOT NULL,
+    pieces_of_items INT          NOT NULL,
+    total_price     INT          NOT NULL,
+    CONSTRAINT fk_items_on_invoices_archive_on_invoice FOREIGN KEY (invoice_id) REFERENCES invoices_archive (invoice_id) ON DELETE CASCADE
+);
+
+ALTER TABLE companies ADD COLUMN archived_invoice_count BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE companies ADD COLUMN last_archived_issue_date DATE NULL;
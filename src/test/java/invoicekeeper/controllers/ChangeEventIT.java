@@ -0,0 +1,133 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.ChangeEventDto;
+import invoicekeeper.dtos.ChangeEventType;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"invoicekeeper.events.poll-interval=100ms", "invoicekeeper.events.gap-timeout=1s"})
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ChangeEventIT {
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: a client resuming from an event gets the events after it, in the order of the changes.")
+    void testResume() {
+        saveInvoiceOfNewCompany();
+        payInvoice();
+        webTestClient.put()
+                .uri("/api/companies/2")
+                .bodyValue(new UpdateAccountNumberCommand("11112222-00000000-99999999"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete().uri("/api/invoices/1").exchange().expectStatus().isNoContent();
+
+        List<ServerSentEvent<ChangeEventDto>> events = streamEvents("/api/events?after=0").take(5).collectList().block(TIMEOUT);
+
+        assertThat(events).extracting(ServerSentEvent::event).containsExactly(
+                "COMPANY_CREATED", "INVOICE_CREATED", "INVOICE_PAID", "COMPANY_UPDATED", "INVOICE_DELETED");
+        assertThat(events).extracting(event -> Long.parseLong(event.id())).isSorted();
+        ChangeEventDto paid = events.get(2).data();
+        assertEquals(ChangeEventType.INVOICE_PAID, paid.getType());
+        assertEquals("84568BB", paid.getInvoiceNumber());
+        assertEquals(2, paid.getCompanyId());
+
+        List<ServerSentEvent<ChangeEventDto>> resumed = webTestClient.get()
+                .uri("/api/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header("Last-Event-ID", events.get(2).id())
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<ChangeEventDto>>() {})
+                .getResponseBody()
+                .take(2).collectList().block(TIMEOUT);
+        assertThat(resumed).extracting(ServerSentEvent::id).containsExactly(events.get(3).id(), events.get(4).id());
+    }
+
+    @Test
+    @DisplayName("Test: changes committed after the client has connected are streamed to it.")
+    void testLiveEvents() throws Exception {
+        payInvoice();
+        CountDownLatch connected = new CountDownLatch(1);
+        CompletableFuture<List<ServerSentEvent<ChangeEventDto>>> events = streamEvents("/api/events?after=0")
+                .doOnNext(event -> connected.countDown())
+                .take(4)
+                .collectList()
+                .toFuture();
+        assertTrue(connected.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+
+        saveInvoiceOfNewCompany();
+        webTestClient.delete().uri("/api/companies/3").exchange().expectStatus().isNoContent();
+
+        assertThat(events.get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS))
+                .extracting(event -> event.data().getType())
+                .containsExactly(ChangeEventType.INVOICE_PAID, ChangeEventType.COMPANY_CREATED, ChangeEventType.INVOICE_CREATED,
+                        ChangeEventType.COMPANY_DELETED);
+    }
+
+    private Flux<ServerSentEvent<ChangeEventDto>> streamEvents(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<ChangeEventDto>>() {})
+                .getResponseBody();
+    }
+
+    private void saveInvoiceOfNewCompany() {
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(new CreateNewInvoiceCommand("EV-0001", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                        "Gyufa Kft", "11223344-2-41", "11223344-55667788-99001122"))
+                .exchange()
+                .expectStatus().isCreated();
+    }
+
+    private void payInvoice() {
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("84568BB", 10000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk();
+    }
+}
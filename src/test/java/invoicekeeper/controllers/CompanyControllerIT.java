@@ -3,9 +3,13 @@ package invoicekeeper.controllers;
 import invoicekeeper.dtos.AddNewCompanyCommand;
 import invoicekeeper.dtos.AddNewInvoiceCommand;
 import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CompanySuggestionDto;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
 import invoicekeeper.dtos.UpdateAccountNumberCommand;
 import invoicekeeper.model.InvoiceItem;
 import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +23,7 @@ import java.time.LocalDate;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -28,14 +33,22 @@ class CompanyControllerIT {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    CompanyCache companyCache;
+
     AddNewCompanyCommand addCompanyCommand;
     AddNewInvoiceCommand addInvoiceCommand;
+    CreateNewInvoiceCommand createInvoiceCommand;
 
     @BeforeEach
     void init() {
+        companyCache.clear();
         addCompanyCommand = new AddNewCompanyCommand("Penny", "12345678-2-44", "11111111-22222222-33333333");
         addInvoiceCommand = new AddNewInvoiceCommand("123456", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
                 PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500);
+        createInvoiceCommand = new CreateNewInvoiceCommand("123456", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Penny", "12345678-2-44", "11111111-22222222-33333333");
     }
 
     @Test
@@ -60,7 +73,7 @@ class CompanyControllerIT {
                 .expectBody(CompanyDto.class)
                 .returnResult().getResponseBody();
 
-        assertThat(result.getInvoices()).hasSize(0);
+        assertEquals(0, result.getInvoiceCount());
 
         webTestClient.post()
                 .uri(uriBuilder -> uriBuilder.path("/api/companies/{id}").build(result.getId()))
@@ -68,7 +81,63 @@ class CompanyControllerIT {
                 .exchange()
                 .expectStatus().isCreated()
                 .expectBody(CompanyDto.class)
-                .value(c -> assertThat(c.getInvoices()).hasSize(1));
+                .value(c -> {
+                    assertEquals(1, c.getInvoiceCount());
+                    assertEquals(500, c.getOpenAmount());
+                    assertEquals(LocalDate.parse("2022-06-17"), c.getLastIssueDate());
+                });
+    }
+
+    @Test
+    @DisplayName("Test: companies are listed with the summary of their invoices.")
+    void testFindAllCompaniesSummary() {
+        webTestClient.get()
+                .uri("/api/companies")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanyDto.class)
+                .value(l -> assertThat(l)
+                        .extracting(CompanyDto::getCompanyName, CompanyDto::getInvoiceCount, CompanyDto::getOpenAmount, CompanyDto::getLastIssueDate)
+                        .containsExactly(
+                                tuple("Best Byte", 2L, 5400L, LocalDate.parse("2022-06-15")),
+                                tuple("Euronics", 2L, 10000L, LocalDate.parse("2022-05-09")),
+                                tuple("Euro Family", 1L, 200L, LocalDate.parse("2022-06-10")),
+                                tuple("Pannon Egyetem", 0L, 0L, null)));
+    }
+
+    @Test
+    @DisplayName("Test: list the invoices of a company page by page, with filters.")
+    void testFindInvoicesOfCompany() {
+        String nextCursor = webTestClient.get()
+                .uri("/api/companies/2/invoices?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB"))
+                .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/companies/2/invoices").queryParam("size", 1).queryParam("cursor", nextCursor).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("995468RS"));
+
+        webTestClient.get()
+                .uri("/api/companies/1/invoices?paymentStatus=UNPAYED")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("45996EE"));
+    }
+
+    @Test
+    @DisplayName("Test: listing the invoices of a not existing company.")
+    void testFindInvoicesOfMissingCompany() {
+        webTestClient.get()
+                .uri("/api/companies/99/invoices")
+                .exchange()
+                .expectStatus().isNotFound();
     }
 
     @Test
@@ -107,6 +176,84 @@ class CompanyControllerIT {
                 .value(c -> assertEquals("Penny", c.getCompanyName()));
     }
 
+    @Test
+    @DisplayName("Test: a company created after its VAT number was looked up is found by later lookups.")
+    void testVatNumberLookupAfterCompanyCreated() {
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        webTestClient.post()
+                .uri("/api/companies")
+                .bodyValue(addCompanyCommand)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(createInvoiceCommand)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(1, c.getInvoiceCount()));
+    }
+
+    @Test
+    @DisplayName("Test: saving an invoice with the VAT number of a deleted company creates the company again.")
+    void testVatNumberLookupAfterCompanyDeleted() {
+        CompanyDto result = webTestClient.post()
+                .uri("/api/companies")
+                .bodyValue(addCompanyCommand)
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .returnResult().getResponseBody();
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.delete()
+                .uri(uriBuilder -> uriBuilder.path("/api/companies/{id}").build(result.getId()))
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(createInvoiceCommand)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertNotEquals(result.getId(), c.getId()));
+    }
+
+    @Test
+    @DisplayName("Test: hits and misses of the VAT number lookups are published as metrics.")
+    void testCompanyCacheMetrics() {
+        webTestClient.get()
+                .uri("/api/companies/vat-number/84512648-1-45")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get()
+                .uri("/actuator/metrics/cache.gets?tag=cache:companiesByVatNumber&tag=result:miss")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.measurements[0].value").value(v -> assertThat((Double) v).isPositive());
+    }
+
     @Test
     @DisplayName("Test: find all companies without filters.")
     void testFindAllCompanies() {
@@ -185,6 +332,79 @@ class CompanyControllerIT {
                 .value(l -> assertThat(l).extracting(CompanyDto::getCompanyName).containsOnly("Best Byte", "Euro Family", "Euronics", "Pannon Egyetem"));
     }
 
+    @Test
+    @DisplayName("Test: suggest companies, names starting with the text first, then later words.")
+    void testSuggestCompanies() {
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=E")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l)
+                        .extracting(CompanySuggestionDto::getCompanyName, CompanySuggestionDto::getVatNumber)
+                        .containsExactly(
+                                tuple("Euro Family", "98765432-2-55"),
+                                tuple("Euronics", "84512648-1-45"),
+                                tuple("Pannon Egyetem", "19265322-1-42")));
+
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=e&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l).extracting(CompanySuggestionDto::getCompanyName).containsExactly("Euro Family"));
+
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=euro  fa")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l).extracting(CompanySuggestionDto::getCompanyName).containsExactly("Euro Family"));
+    }
+
+    @Test
+    @DisplayName("Test: suggestions follow the companies created and deleted.")
+    void testSuggestCompaniesAfterChanges() {
+        webTestClient.post()
+                .uri("/api/companies")
+                .bodyValue(addCompanyCommand)
+                .exchange()
+                .expectStatus().isCreated();
+        createInvoiceCommand.setCompanyName("Pepco Hungary Kft");
+        createInvoiceCommand.setVatNumber("87654321-2-44");
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(createInvoiceCommand)
+                .exchange()
+                .expectStatus().isCreated();
+        webTestClient.delete()
+                .uri("/api/companies/4")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=p")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l).extracting(CompanySuggestionDto::getCompanyName).containsExactly("Penny", "Pepco Hungary Kft"));
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=hung")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l).extracting(CompanySuggestionDto::getCompanyName).containsExactly("Pepco Hungary Kft"));
+    }
+
+    @Test
+    @DisplayName("Test: suggesting companies needs a text.")
+    void testSuggestCompaniesWithoutText() {
+        webTestClient.get()
+                .uri("/api/companies/suggest?q= ")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     @DisplayName("Test: validate with wrong VAT format.")
     void testWrongVatFormatValidator() {
@@ -0,0 +1,146 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDeletionJobDto;
+import invoicekeeper.dtos.CompanyDeletionStatus;
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.repositories.ReceivablesRepository;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "invoicekeeper.company-deletion.chunk-size=1")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class CompanyDeletionIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    ReceivablesRepository receivablesRepository;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: a company with more than one chunk of invoices is deleted by a background job with progress status.")
+    void testDeleteInBackground() throws InterruptedException {
+        CompanyDeletionJobDto job = webTestClient.delete()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectStatus().isAccepted()
+                .expectBody(CompanyDeletionJobDto.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(2, job.getCompanyId());
+        assertEquals(2, job.getInvoiceCount());
+
+        CompanyDeletionJobDto finished = awaitJob(job);
+        assertEquals(CompanyDeletionStatus.COMPLETED, finished.getStatus());
+        assertEquals(2, finished.getDeletedInvoiceCount());
+
+        webTestClient.get().uri("/api/companies/2").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/invoices/2").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/invoices/3").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/companies/vat-number/84512648-1-45").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/reports/receivables").exchange()
+                .expectBody(ReceivablesReportDto.class)
+                .value(report -> assertThat(report.getCompanies()).extracting(ReceivablesDto::getCompanyId).doesNotContain(2L));
+    }
+
+    @Test
+    @DisplayName("Test: the receivables of a company lose the invoices of each deleted chunk.")
+    void testRemoveChunkFromReceivables() {
+        receivablesRepository.removeInvoices(List.of(2L), false);
+
+        webTestClient.get().uri("/api/reports/receivables").exchange()
+                .expectBody(ReceivablesReportDto.class)
+                .value(report -> assertThat(report.getCompanies())
+                        .filteredOn(company -> company.getCompanyId() == 2L)
+                        .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount,
+                                ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                        .containsExactly(tuple(0L, 0L, 1L, 6000L)));
+    }
+
+    @Test
+    @DisplayName("Test: the deletion job is linked from the Location header.")
+    void testDeletionJobLocation() throws InterruptedException {
+        URI location = webTestClient.delete()
+                .uri("/api/companies/1")
+                .exchange()
+                .expectStatus().isAccepted()
+                .returnResult(CompanyDeletionJobDto.class)
+                .getResponseHeaders().getLocation();
+
+        assertNotNull(location);
+        assertThat(location.getPath()).startsWith("/api/companies/deletions/");
+        CompanyDeletionJobDto job = webTestClient.get()
+                .uri(location)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDeletionJobDto.class)
+                .returnResult().getResponseBody();
+        assertEquals(1, job.getCompanyId());
+        assertEquals(CompanyDeletionStatus.COMPLETED, awaitJob(job).getStatus());
+    }
+
+    @Test
+    @DisplayName("Test: a company with at most one chunk of invoices is deleted right away.")
+    void testDeleteRightAway() {
+        webTestClient.delete()
+                .uri("/api/companies/3")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/api/companies/3").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/invoices/4").exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Test: deleting a missing company and asking for a missing job are not found.")
+    void testNotFound() {
+        webTestClient.delete()
+                .uri("/api/companies/99")
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.get()
+                .uri("/api/companies/deletions/00000000-0000-0000-0000-000000000000")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private CompanyDeletionJobDto awaitJob(CompanyDeletionJobDto job) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            CompanyDeletionJobDto current = webTestClient.get()
+                    .uri("/api/companies/deletions/{jobId}", job.getId())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBody(CompanyDeletionJobDto.class)
+                    .returnResult().getResponseBody();
+            if (current.getStatus() != CompanyDeletionStatus.RUNNING) {
+                return current;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("Deletion job did not finish: " + job.getId());
+    }
+}
@@ -0,0 +1,223 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.AddNewCompanyCommand;
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ConcurrentCreateIT {
+
+    static final int THREADS = 8;
+
+    static final int INVOICES_PER_THREAD = 25;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Test: of concurrent requests saving the same invoice number exactly one succeeds.")
+    void testSaveSameInvoiceConcurrently() throws Exception {
+        CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("RACE-1", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Euronics", "84512648-1-45", "84245689-12358698-22222222");
+
+        List<EntityExchangeResult<String>> results = runConcurrently(thread -> webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(command)
+                .exchange()
+                .expectBody(String.class)
+                .returnResult());
+
+        assertThat(results).extracting(EntityExchangeResult::getStatus)
+                .containsOnly(HttpStatus.CREATED, HttpStatus.BAD_REQUEST)
+                .filteredOn(HttpStatus.CREATED::equals).hasSize(1);
+        assertThat(results).filteredOn(r -> r.getStatus() == HttpStatus.BAD_REQUEST)
+                .allSatisfy(r -> assertThat(r.getResponseBody()).contains("Invoice with invoice number RACE-1 already exists."));
+
+        webTestClient.get()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(3, c.getInvoiceCount()));
+    }
+
+    @Test
+    @DisplayName("Test: of concurrent requests adding the same VAT number exactly one succeeds.")
+    void testAddSameCompanyConcurrently() throws Exception {
+        AddNewCompanyCommand command = new AddNewCompanyCommand("Penny", "12345678-2-44", "11111111-22222222-33333333");
+
+        List<EntityExchangeResult<String>> results = runConcurrently(thread -> webTestClient.post()
+                .uri("/api/companies")
+                .bodyValue(command)
+                .exchange()
+                .expectBody(String.class)
+                .returnResult());
+
+        assertThat(results).extracting(EntityExchangeResult::getStatus)
+                .containsOnly(HttpStatus.CREATED, HttpStatus.CONFLICT)
+                .filteredOn(HttpStatus.CREATED::equals).hasSize(1);
+        assertThat(results).filteredOn(r -> r.getStatus() == HttpStatus.CONFLICT)
+                .allSatisfy(r -> assertThat(r.getResponseBody()).contains("Company with VAT number 12345678-2-44 already exists."));
+    }
+
+    @Test
+    @DisplayName("Test: concurrent requests saving the first invoices of the same new company all succeed, with one company.")
+    void testSaveFirstInvoicesOfNewCompanyConcurrently() throws Exception {
+        List<HttpStatus> results = runConcurrently(thread -> webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(new CreateNewInvoiceCommand("FIRST-" + thread, LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                        "Penny", "12345678-2-44", "11111111-22222222-33333333"))
+                .exchange()
+                .expectBody(String.class)
+                .returnResult()
+                .getStatus());
+
+        assertThat(results).containsOnly(HttpStatus.CREATED);
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from companies where vat_number = '12345678-2-44'", Integer.class));
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(THREADS, c.getInvoiceCount()));
+    }
+
+    @Test
+    @DisplayName("Test: an invoice of a company saved since its VAT number was cached as unknown is added to that company.")
+    void testSaveInvoiceOfCompanyCachedAsUnknown() {
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isNotFound();
+        jdbcTemplate.update("insert into companies (name_of_company, vat_number, bank_account_number) " +
+                "values ('Penny', '12345678-2-44', '11111111-22222222-33333333')");
+
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(new CreateNewInvoiceCommand("STALE-1", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                        "Penny Market", "12345678-2-44", "11111111-22222222-33333333"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals("Penny", i.getCompanyName()));
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from companies where vat_number = '12345678-2-44'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Test: concurrent requests saving different invoices of the same company all succeed.")
+    void testSaveDifferentInvoicesConcurrently() throws Exception {
+        List<List<HttpStatus>> results = runConcurrently(thread -> {
+            List<HttpStatus> statuses = new ArrayList<>();
+            for (int i = 0; i < INVOICES_PER_THREAD; i++) {
+                CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("LOAD-" + thread + "-" + i, LocalDate.parse("2022-06-17"),
+                        LocalDate.parse("2022-06-25"), PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                        "Euronics", "84512648-1-45", "84245689-12358698-22222222");
+                statuses.add(webTestClient.post()
+                        .uri("/api/invoices")
+                        .bodyValue(command)
+                        .exchange()
+                        .expectBody(String.class)
+                        .returnResult()
+                        .getStatus());
+            }
+            return statuses;
+        });
+
+        assertThat(results).flatExtracting(statuses -> statuses).hasSize(THREADS * INVOICES_PER_THREAD).containsOnly(HttpStatus.CREATED);
+
+        webTestClient.get()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> {
+                    assertEquals(2 + THREADS * INVOICES_PER_THREAD, c.getInvoiceCount());
+                    assertEquals(10000 + THREADS * INVOICES_PER_THREAD * 500, c.getOpenAmount());
+                });
+    }
+
+    @Test
+    @DisplayName("Test: adding an existing invoice number to a company is rejected and leaves the company unchanged.")
+    void testAddExistingInvoiceToCompany() {
+        AddNewInvoiceCommand command = new AddNewInvoiceCommand("84568BB", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500);
+
+        webTestClient.post()
+                .uri("/api/companies/1")
+                .bodyValue(command)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody(String.class)
+                .value(b -> assertThat(b).contains("Invoice with invoice number 84568BB already exists."));
+
+        webTestClient.get()
+                .uri("/api/companies/1")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(2, c.getInvoiceCount()));
+    }
+
+    private <T> List<T> runConcurrently(IntFunction<T> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return request.apply(thread);
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,187 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ConcurrentUpdateIT {
+
+    static final int THREADS = 8;
+
+    static final int UPDATES_PER_THREAD = 10;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    ExecutorService executor;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Test: concurrent payments of the same invoice all succeed and pay it once.")
+    void testPaySameInvoiceConcurrently() throws Exception {
+        PayInvoiceCommand command = new PayInvoiceCommand("84568BB", 10000, "84245689-12358698-22222222");
+
+        List<EntityExchangeResult<InvoiceDto>> results = runConcurrently(thread -> webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(command)
+                .exchange()
+                .expectBody(InvoiceDto.class)
+                .returnResult());
+
+        assertThat(results).extracting(EntityExchangeResult::getStatus).containsOnly(HttpStatus.OK);
+        assertThat(results).extracting(r -> r.getResponseBody().getPaymentStatus()).containsOnly(PaymentStatus.PAYED);
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from change_events where event_type = 'INVOICE_PAID'", Integer.class));
+
+        webTestClient.get()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(0, c.getOpenAmount()));
+    }
+
+    @Test
+    @DisplayName("Test: concurrent account number updates of the same company are retried, none of them is lost.")
+    void testUpdateAccountNumberConcurrently() throws Exception {
+        long versionBefore = companyVersion(1);
+        double retriedBefore = conflicts("updateAccountNumber", "retried");
+        double exhaustedBefore = conflicts("updateAccountNumber", "exhausted");
+
+        List<List<HttpStatus>> results = runConcurrently(thread -> {
+            List<HttpStatus> statuses = new ArrayList<>();
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                statuses.add(webTestClient.put()
+                        .uri("/api/companies/1")
+                        .bodyValue(new UpdateAccountNumberCommand(String.format("11111111-%08d-%08d", thread, i)))
+                        .exchange()
+                        .expectBody(String.class)
+                        .returnResult()
+                        .getStatus());
+            }
+            return statuses;
+        });
+
+        List<HttpStatus> statuses = results.stream().flatMap(List::stream).toList();
+        assertThat(statuses).hasSize(THREADS * UPDATES_PER_THREAD).isSubsetOf(HttpStatus.OK, HttpStatus.CONFLICT);
+        long updated = statuses.stream().filter(HttpStatus.OK::equals).count();
+        assertEquals(versionBefore + updated, companyVersion(1));
+        assertEquals(THREADS * UPDATES_PER_THREAD - updated, conflicts("updateAccountNumber", "exhausted") - exhaustedBefore);
+        assertThat(conflicts("updateAccountNumber", "retried")).isGreaterThan(retriedBefore);
+    }
+
+    @Test
+    @DisplayName("Test: concurrent payments of different invoices of the same company do not conflict.")
+    void testPayDifferentInvoicesConcurrently() throws Exception {
+        for (int i = 0; i < THREADS * UPDATES_PER_THREAD; i++) {
+            webTestClient.post()
+                    .uri("/api/companies/2")
+                    .bodyValue(new AddNewInvoiceCommand("PAY-" + i, LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                            PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500))
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+        double conflictsBefore = conflicts("payInvoice", "retried");
+
+        List<List<HttpStatus>> results = runConcurrently(thread -> {
+            List<HttpStatus> statuses = new ArrayList<>();
+            for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                statuses.add(webTestClient.put()
+                        .uri("/api/invoices/payment")
+                        .bodyValue(new PayInvoiceCommand("PAY-" + (thread * UPDATES_PER_THREAD + i), 500, "84245689-12358698-22222222"))
+                        .exchange()
+                        .expectBody(String.class)
+                        .returnResult()
+                        .getStatus());
+            }
+            return statuses;
+        });
+
+        assertThat(results).flatExtracting(statuses -> statuses).hasSize(THREADS * UPDATES_PER_THREAD).containsOnly(HttpStatus.OK);
+        assertEquals(conflictsBefore, conflicts("payInvoice", "retried"));
+
+        webTestClient.get()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(10000, c.getOpenAmount()));
+    }
+
+    private long companyVersion(long id) {
+        return jdbcTemplate.queryForObject("select version from companies where company_id = ?", Long.class, id);
+    }
+
+    private double conflicts(String operation, String outcome) {
+        return Optional.ofNullable(meterRegistry.find("invoicekeeper.optimistic-lock.conflicts")
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .counter())
+                .map(Counter::count)
+                .orElse(0.0);
+    }
+
+    private <T> List<T> runConcurrently(IntFunction<T> request) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> futures = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            int thread = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                return request.apply(thread);
+            }));
+        }
+        start.countDown();
+        List<T> results = new ArrayList<>();
+        for (Future<T> future : futures) {
+            results.add(future.get(60, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,164 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ETagIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: an unchanged invoice is not sent again.")
+    void testInvoiceNotModified() {
+        String eTag = eTagOf("/api/invoices/2");
+
+        assertNotNull(eTag);
+        webTestClient.get()
+                .uri("/api/invoices/2")
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectHeader().valueEquals("ETag", eTag)
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    @DisplayName("Test: paying an invoice changes the ETag of the invoice, its company and the listings.")
+    void testPaymentChangesETags() {
+        String invoiceETag = eTagOf("/api/invoices/2");
+        String companyETag = eTagOf("/api/companies/2");
+        String companyInvoicesETag = eTagOf("/api/companies/2/invoices");
+        String invoicesETag = eTagOf("/api/invoices");
+        String companiesETag = eTagOf("/api/companies");
+
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("84568BB", 10000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertModified("/api/invoices/2", invoiceETag);
+        assertModified("/api/companies/2", companyETag);
+        assertModified("/api/companies/2/invoices", companyInvoicesETag);
+        assertModified("/api/invoices", invoicesETag);
+        assertModified("/api/companies", companiesETag);
+    }
+
+    @Test
+    @DisplayName("Test: adding an invoice to a company changes the ETag of the company and its invoices.")
+    void testNewInvoiceChangesETags() {
+        String companyETag = eTagOf("/api/companies/vat-number/84512648-1-45");
+        String companyInvoicesETag = eTagOf("/api/companies/2/invoices");
+
+        webTestClient.post()
+                .uri("/api/companies/2")
+                .bodyValue(new AddNewInvoiceCommand("2468", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500))
+                .exchange()
+                .expectStatus().isCreated();
+
+        assertModified("/api/companies/vat-number/84512648-1-45", companyETag);
+        assertModified("/api/companies/2/invoices", companyInvoicesETag);
+    }
+
+    @Test
+    @DisplayName("Test: changing the bank account number changes the ETag of the company.")
+    void testAccountNumberChangesETag() {
+        String companyETag = eTagOf("/api/companies/1");
+
+        webTestClient.put()
+                .uri("/api/companies/1")
+                .bodyValue(new UpdateAccountNumberCommand("11111111-22222222-33333333"))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertModified("/api/companies/1", companyETag);
+    }
+
+    @Test
+    @DisplayName("Test: deleting an invoice changes the ETag of the listing.")
+    void testDeleteChangesListingETag() {
+        String invoicesETag = eTagOf("/api/invoices?paymentStatus=UNPAYED");
+
+        webTestClient.delete()
+                .uri("/api/invoices/4")
+                .exchange()
+                .expectStatus().isNoContent();
+
+        assertModified("/api/invoices?paymentStatus=UNPAYED", invoicesETag);
+    }
+
+    @Test
+    @DisplayName("Test: other companies of the same number, id sum and version sum change the ETag of the listing.")
+    void testOtherCompaniesChangeListingETag() {
+        jdbcTemplate.update("update companies set version = 0");
+        String companiesETag = eTagOf("/api/companies?searchName=Euro");
+
+        jdbcTemplate.update("update companies set name_of_company = case company_id " +
+                "when 1 then 'Euro Best Byte' when 2 then 'Eronics' when 3 then 'Family' else 'Euro Pannon' end");
+
+        assertModified("/api/companies?searchName=Euro", companiesETag);
+    }
+
+    @Test
+    @DisplayName("Test: ETag of a missing invoice is not found.")
+    void testETagOfMissingInvoice() {
+        webTestClient.get()
+                .uri("/api/invoices/99")
+                .ifNoneMatch("\"0\"")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private String eTagOf(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+    }
+
+    private void assertModified(String uri, String eTag) {
+        String newETag = webTestClient.get()
+                .uri(uri)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(String.class)
+                .getResponseHeaders().getETag();
+        assertNotEquals(eTag, newETag);
+    }
+}
@@ -0,0 +1,268 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.dtos.ReconciliationReportDto;
+import invoicekeeper.dtos.TransferResultDto;
+import invoicekeeper.dtos.TransferStatus;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import invoicekeeper.service.InvoiceArchiveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"invoicekeeper.archive.min-age=P0D", "invoicekeeper.archive.batch-size=1"})
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class InvoiceArchiveIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    InvoiceArchiveService invoiceArchiveService;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: archived invoices are left out of the listings, unless the history is asked for.")
+    void testListings() {
+        assertEquals(2, invoiceArchiveService.archive());
+
+        assertThat(listInvoices("/api/invoices").getResponseBody())
+                .extracting(InvoiceDto::getInvoiceNumber)
+                .containsExactly("84568BB", "XG45-12", "45996EE");
+        assertThat(listInvoices("/api/invoices?includeArchived=true").getResponseBody())
+                .extracting(InvoiceDto::getInvoiceNumber)
+                .containsExactly("123456AB", "84568BB", "995468RS", "XG45-12", "45996EE");
+        assertThat(listInvoices("/api/companies/2/invoices").getResponseBody())
+                .extracting(InvoiceDto::getInvoiceNumber)
+                .containsExactly("84568BB");
+        assertThat(listInvoices("/api/companies/2/invoices?includeArchived=true&paymentStatus=PAYED").getResponseBody())
+                .extracting(InvoiceDto::getInvoiceNumber)
+                .containsExactly("995468RS");
+    }
+
+    @Test
+    @DisplayName("Test: the invoice history is paged with the cursor across the hot and the archived invoices.")
+    void testHistoryPages() {
+        invoiceArchiveService.archive();
+
+        EntityExchangeResult<List<InvoiceDto>> first = listInvoices("/api/invoices?includeArchived=true&size=2");
+        String cursor = first.getResponseHeaders().getFirst(InvoiceController.NEXT_CURSOR_HEADER);
+        EntityExchangeResult<List<InvoiceDto>> second = listInvoices("/api/invoices?includeArchived=true&size=2&cursor=" + cursor);
+
+        assertThat(first.getResponseBody()).extracting(InvoiceDto::getId).containsExactly(1L, 2L);
+        assertThat(second.getResponseBody()).extracting(InvoiceDto::getId).containsExactly(3L, 4L);
+        webTestClient.get()
+                .uri("/api/invoices?includeArchived=true&size=2")
+                .header("If-None-Match", first.getResponseHeaders().getETag())
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    @DisplayName("Test: an archived invoice is still found by its id and paid by its number.")
+    void testFindArchivedInvoice() {
+        invoiceArchiveService.archive();
+
+        InvoiceDto invoice = webTestClient.get()
+                .uri("/api/invoices/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag")
+                .expectBody(InvoiceDto.class)
+                .returnResult().getResponseBody();
+        assertEquals("123456AB", invoice.getInvoiceNumber());
+        assertEquals("Best Byte", invoice.getCompanyName());
+        assertThat(invoice.getItems()).extracting(InvoiceItem::getName).containsExactlyInAnyOrder("RAM", "processzor");
+
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("995468RS", 6000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceDto.class)
+                .value(paid -> assertEquals(PaymentStatus.PAYED, paid.getPaymentStatus()));
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("995468RS", 7000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    @DisplayName("Test: an archived invoice is found by the reactive API and its transfer on a statement is rejected as paid.")
+    void testFindArchivedInvoiceReactiveAndOnStatement() {
+        invoiceArchiveService.archive();
+
+        webTestClient.get()
+                .uri("/api/reactive/invoices/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceDto.class)
+                .value(invoice -> {
+                    assertEquals("123456AB", invoice.getInvoiceNumber());
+                    assertEquals("Best Byte", invoice.getCompanyName());
+                    assertThat(invoice.getItems()).extracting(InvoiceItem::getName).containsExactlyInAnyOrder("RAM", "processzor");
+                });
+
+        ReconciliationReportDto report = webTestClient.post()
+                .uri("/api/invoices/payment/statement")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("""
+                        bookingDate,invoiceNumber,amount,bankAccountNumber,reference
+                        2022-07-01,123456AB,1200,12345876-86496452-11111111,Best Byte
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReconciliationReportDto.class)
+                .returnResult().getResponseBody();
+        assertThat(report.getResults()).extracting(TransferResultDto::getStatus).containsExactly(TransferStatus.REJECTED);
+        assertThat(report.getResults().get(0).getViolations()).extracting("message")
+                .containsExactly("Invoice with invoice number 123456AB is already paid.");
+    }
+
+    @Test
+    @DisplayName("Test: company summaries count the archived invoices and their numbers stay taken.")
+    void testSummaryAndUniqueNumbers() {
+        invoiceArchiveService.archive();
+
+        webTestClient.get()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectBody(CompanyDto.class)
+                .value(company -> {
+                    assertEquals(2, company.getInvoiceCount());
+                    assertEquals(10000, company.getOpenAmount());
+                    assertEquals(LocalDate.parse("2022-05-09"), company.getLastIssueDate());
+                });
+
+        CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("995468RS", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Euronics", "84512648-1-45", "84245689-12358698-22222222");
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(command)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Test: the number of an invoice archived while a new invoice with it is saved stays taken.")
+    void testUniqueNumberWhileArchiving() throws Exception {
+        CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("995468RS", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Best Byte", "12345678-1-45", "12345876-86496452-11111111");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement update = connection.createStatement()) {
+                update.executeUpdate("insert into invoices_archive (invoice_id, invoice_number, date_of_issue, due_date, " +
+                        "payment_status, amount_total, company_id, version) select invoice_id, invoice_number, date_of_issue, " +
+                        "due_date, payment_status, amount_total, company_id, version from invoices where invoice_id = 3");
+                update.executeUpdate("delete from items_on_invoices where invoice_id = 3");
+                update.executeUpdate("delete from invoices where invoice_id = 3");
+            }
+            Future<HttpStatus> status = executor.submit(() -> webTestClient.post()
+                    .uri("/api/invoices")
+                    .bodyValue(command)
+                    .exchange()
+                    .returnResult(String.class)
+                    .getStatus());
+            awaitLockWait();
+            connection.commit();
+
+            assertEquals(HttpStatus.BAD_REQUEST, status.get(60, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from invoices where invoice_number = '995468RS'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Test: archived invoices are deleted by id and with their company.")
+    void testDeleteArchived() {
+        invoiceArchiveService.archive();
+
+        webTestClient.delete().uri("/api/invoices/3").exchange().expectStatus().isNoContent();
+        webTestClient.get().uri("/api/invoices/3").exchange().expectStatus().isNotFound();
+        webTestClient.get().uri("/api/companies/2").exchange()
+                .expectBody(CompanyDto.class)
+                .value(company -> {
+                    assertEquals(1, company.getInvoiceCount());
+                    assertEquals(LocalDate.parse("2021-01-12"), company.getLastIssueDate());
+                });
+        webTestClient.get().uri("/api/reports/receivables").exchange()
+                .expectBody(ReceivablesReportDto.class)
+                .value(report -> assertThat(report.getCompanies())
+                        .filteredOn(receivables -> receivables.getCompanyId() == 2)
+                        .extracting(ReceivablesDto::getPaidCount)
+                        .containsExactly(0L));
+
+        webTestClient.delete().uri("/api/companies/1").exchange().expectStatus().isNoContent();
+        webTestClient.get().uri("/api/invoices/1").exchange().expectStatus().isNotFound();
+    }
+
+    /**
+     * Waits until a transaction is blocked on a lock, the save on the invoice number held by the test's connection.
+     */
+    private void awaitLockWait() throws InterruptedException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < 600; i++) {
+            if (jdbcTemplate.queryForObject("select count(*) from information_schema.innodb_trx where trx_state = 'LOCK WAIT'",
+                    Integer.class) > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The save did not wait for the locked invoice number.");
+    }
+
+    private EntityExchangeResult<List<InvoiceDto>> listInvoices(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .returnResult();
+    }
+}
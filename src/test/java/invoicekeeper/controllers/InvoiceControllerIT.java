@@ -5,11 +5,13 @@ import invoicekeeper.dtos.InvoiceDto;
 import invoicekeeper.dtos.PayInvoiceCommand;
 import invoicekeeper.model.InvoiceItem;
 import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.zalando.problem.violations.ConstraintViolationProblem;
@@ -27,11 +29,15 @@ class InvoiceControllerIT {
     @Autowired
     WebTestClient webTestClient;
 
+    @Autowired
+    CompanyCache companyCache;
+
     CreateNewInvoiceCommand createCommandWithNewCompany;
     CreateNewInvoiceCommand createCommandWithExistingCompany;
 
     @BeforeEach
     void init() {
+        companyCache.clear();
         createCommandWithNewCompany = new CreateNewInvoiceCommand("123456", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
                 PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
                 "Penny", "12345678-2-44", "11111111-22222222-33333333");
@@ -118,6 +124,118 @@ class InvoiceControllerIT {
                 .value(i -> assertThat(i).extracting(InvoiceDto::getInvoiceNumber).containsOnly("995468RS", "XG45-12", "45996EE"));
     }
 
+    @Test
+    @DisplayName("Test: find all unpaid invoices.")
+    void testGetAllInvoicesWithPaymentStatusParameter() {
+        webTestClient.get()
+                .uri("/api/invoices?paymentStatus=UNPAYED")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB", "XG45-12", "45996EE"));
+    }
+
+    @Test
+    @DisplayName("Test: find overdue and not yet due invoices.")
+    void testGetAllInvoicesWithOverdueParameter() {
+        createCommandWithNewCompany.setDueDate(LocalDate.now().plusDays(10));
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(createCommandWithNewCompany)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.get()
+                .uri("/api/invoices?isOverDue=yes")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .hasSize(5)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).doesNotContain("123456"));
+
+        webTestClient.get()
+                .uri("/api/invoices?isOverDue=no")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("123456"));
+    }
+
+    @Test
+    @DisplayName("Test: find invoices due in a date range.")
+    void testGetAllInvoicesWithDueDateRange() {
+        webTestClient.get()
+                .uri("/api/invoices?dueAfter=2021-01-01&dueBefore=2022-07-01")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB", "XG45-12"));
+    }
+
+    @Test
+    @DisplayName("Test: page through all invoices using the cursor.")
+    void testGetAllInvoicesPaged() {
+        String nextCursor = webTestClient.get()
+                .uri("/api/invoices?size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .hasSize(2)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("123456AB", "84568BB"))
+                .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        String lastCursor = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/invoices").queryParam("size", 2).queryParam("cursor", nextCursor).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("995468RS", "XG45-12"))
+                .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/invoices").queryParam("size", 2).queryParam("cursor", lastCursor).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist("X-Next-Cursor")
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("45996EE"));
+    }
+
+    @Test
+    @DisplayName("Test: page size over the limit is rejected.")
+    void testGetAllInvoicesWithTooLargePage() {
+        webTestClient.get()
+                .uri("/api/invoices?size=5000")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Test: invalid cursor is rejected.")
+    void testGetAllInvoicesWithInvalidCursor() {
+        webTestClient.get()
+                .uri("/api/invoices?cursor=notacursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Test: stream all invoices as newline delimited JSON.")
+    void testStreamAllInvoices() {
+        List<InvoiceDto> result = webTestClient.get()
+                .uri("/api/invoices?companyName=uro")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(InvoiceDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(result).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB", "995468RS", "XG45-12");
+    }
+
     @Test
     @DisplayName("Test: Find all invoices which has the given item on it.")
     void testGetAllInvoicesWithItem() {
@@ -130,6 +248,78 @@ class InvoiceControllerIT {
                 .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsOnly("123456AB","45996EE"));
     }
 
+    @Test
+    @DisplayName("Test: Find invoices by part of an item name, ignoring case, with all their items.")
+    void testGetAllInvoicesWithItemSubstring() {
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=OCESSZ")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .hasSize(1)
+                .value(l -> {
+                    assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("123456AB");
+                    assertThat(l.get(0).getItems()).extracting(InvoiceItem::getName).containsOnly("RAM", "processzor");
+                });
+    }
+
+    @Test
+    @DisplayName("Test: Find invoices by a short item name.")
+    void testGetAllInvoicesWithShortItemName() {
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=tv")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("995468RS"));
+    }
+
+    @Test
+    @DisplayName("Test: Find invoices by the last letter of an item name.")
+    void testGetAllInvoicesWithLastLetterOfItemName() {
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=u")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("45996EE"));
+    }
+
+    @Test
+    @DisplayName("Test: Find invoices by item name page by page.")
+    void testGetAllInvoicesWithItemPaged() {
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=RAM&size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("45996EE"));
+
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=RAM&size=1&page=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("123456AB"));
+    }
+
+    @Test
+    @DisplayName("Test: Items of a newly saved invoice are searchable.")
+    void testGetNewInvoiceByItemName() {
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(createCommandWithNewCompany)
+                .exchange()
+                .expectStatus().isCreated();
+
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=gyufa")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("123456"));
+    }
+
     @Test
     @DisplayName("Test: Pay an invoice.")
     void testPayInvoice() {
@@ -0,0 +1,85 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.InvoiceImportReportDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class InvoiceExportIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: export the invoices matching the filters as CSV, one line for each item.")
+    void testExportCsv() {
+        String csv = webTestClient.get()
+                .uri("/api/invoices/export?companyName=Euro&paymentStatus=UNPAYED")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.parseMediaType("text/csv"))
+                .expectHeader().valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\"")
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(csv.split("\n")).containsExactly(
+                "invoiceNumber,issueDate,dueDate,paymentStatus,amount,companyName,vatNumber,bankAccountNumber,itemName,pieces,priceTotal",
+                "84568BB,2021-01-12,2021-02-01,UNPAYED,10000,Euronics,84512648-1-45,84245689-12358698-22222222,okostelefon,1,5000",
+                "XG45-12,2022-06-10,2022-06-20,UNPAYED,200,Euro Family,98765432-2-55,48695842-45236874-88888888,termosz,1,200");
+    }
+
+    @Test
+    @DisplayName("Test: exported invoices can be imported again.")
+    void testExportThenImport() {
+        byte[] csv = webTestClient.get()
+                .uri("/api/invoices/export?vatNumber=84512648-1-45")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .returnResult().getResponseBody();
+        webTestClient.delete().uri("/api/invoices/2").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/invoices/3").exchange().expectStatus().isNoContent();
+
+        InvoiceImportReportDto report = webTestClient.post()
+                .uri("/api/invoices/batch")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceImportReportDto.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(2, report.getImported());
+        webTestClient.get()
+                .uri("/api/invoices?vatNumber=84512648-1-45")
+                .exchange()
+                .expectBodyList(InvoiceDto.class)
+                .value(invoices -> assertThat(invoices)
+                        .filteredOn(invoice -> invoice.getInvoiceNumber().equals("995468RS"))
+                        .flatExtracting(InvoiceDto::getItems)
+                        .extracting(InvoiceItem::getName)
+                        .containsExactlyInAnyOrder("4K TV", "Playstation 5"));
+    }
+}
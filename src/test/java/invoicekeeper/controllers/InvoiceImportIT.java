@@ -0,0 +1,138 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CompanySuggestionDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.InvoiceImportReportDto;
+import invoicekeeper.dtos.InvoiceImportResultDto;
+import invoicekeeper.dtos.InvoiceImportStatus;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "invoicekeeper.import.batch-size=2")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class InvoiceImportIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: import invoices from newline delimited JSON, reporting every record.")
+    void testImportNdjson() {
+        String body = """
+                {"invoiceNumber":"IMP-1","issueDate":"2022-06-01","dueDate":"2022-07-01","paymentStatus":"UNPAYED","items":[{"name":"monitor","pieces":1,"priceTotal":900}],"amount":900,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                {"invoiceNumber":"IMP-2","issueDate":"2022-06-02","dueDate":"2022-07-02","paymentStatus":"UNPAYED","items":[{"name":"monitor","pieces":2,"priceTotal":1800}],"amount":1800,"companyName":"Euronics","vatNumber":"84512648-1-45","bankAccountNumber":"84245689-12358698-22222222"}
+                {"invoiceNumber":"123456AB","issueDate":"2022-06-02","dueDate":"2022-07-02","paymentStatus":"UNPAYED","items":[],"amount":100,"companyName":"Euronics","vatNumber":"84512648-1-45","bankAccountNumber":"84245689-12358698-22222222"}
+
+                {"invoiceNumber":"IMP-3","issueDate":"2022-06-02","dueDate":"2022-07-02","paymentStatus":"UNPAYED","items":[],"amount":100,"companyName":"Penny","vatNumber":"123","bankAccountNumber":"11111111-22222222-33333333"}
+                {"invoiceNumber":"IMP-1","issueDate":"2022-06-03","dueDate":"2022-07-03","paymentStatus":"UNPAYED","items":[],"amount":100,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                {"invoiceNumber":
+                {"invoiceNumber":"IMP-4","issueDate":"2022-06-04","dueDate":"2022-07-04","paymentStatus":"PAYED","items":[{"name":"egér","pieces":3,"priceTotal":300}],"amount":300,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                """;
+
+        InvoiceImportReportDto report = webTestClient.post()
+                .uri("/api/invoices/batch")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceImportReportDto.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(3, report.getImported());
+        assertEquals(4, report.getRejected());
+        assertThat(report.getResults())
+                .extracting(InvoiceImportResultDto::getRecord, InvoiceImportResultDto::getInvoiceNumber, InvoiceImportResultDto::getStatus)
+                .containsExactly(
+                        tuple(1, "IMP-1", InvoiceImportStatus.IMPORTED),
+                        tuple(2, "IMP-2", InvoiceImportStatus.IMPORTED),
+                        tuple(3, "123456AB", InvoiceImportStatus.REJECTED),
+                        tuple(5, "IMP-3", InvoiceImportStatus.REJECTED),
+                        tuple(6, "IMP-1", InvoiceImportStatus.REJECTED),
+                        tuple(7, null, InvoiceImportStatus.REJECTED),
+                        tuple(8, "IMP-4", InvoiceImportStatus.IMPORTED));
+        assertThat(report.getResults().get(3).getViolations()).extracting("field").containsExactly("vatNumber");
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(2, c.getInvoiceCount()));
+
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=monitor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsOnly("IMP-1", "IMP-2"));
+
+
+        webTestClient.get()
+                .uri("/api/companies/suggest?q=pen")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanySuggestionDto.class)
+                .value(l -> assertThat(l).extracting(CompanySuggestionDto::getVatNumber).containsExactly("12345678-2-44"));
+    }
+
+    @Test
+    @DisplayName("Test: import invoices from CSV, one line for each item.")
+    void testImportCsv() {
+        String body = """
+                invoiceNumber,issueDate,dueDate,paymentStatus,amount,companyName,vatNumber,bankAccountNumber,itemName,pieces,priceTotal
+                CSV-1,2022-06-01,2022-07-01,UNPAYED,1500,Euronics,84512648-1-45,84245689-12358698-22222222,monitor,1,900
+                CSV-1,2022-06-01,2022-07-01,UNPAYED,1500,Euronics,84512648-1-45,84245689-12358698-22222222,hangszóró,2,600
+                CSV-2,2022-13-01,2022-07-01,UNPAYED,100,Euronics,84512648-1-45,84245689-12358698-22222222,kábel,1,100
+                CSV-3,2022-06-03,2022-07-03,PAYED,200,Euronics,84512648-1-45,84245689-12358698-22222222,kábel,2,200
+                """;
+
+        InvoiceImportReportDto report = webTestClient.post()
+                .uri("/api/invoices/batch")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceImportReportDto.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(2, report.getImported());
+        assertThat(report.getResults())
+                .extracting(InvoiceImportResultDto::getRecord, InvoiceImportResultDto::getStatus)
+                .containsExactly(
+                        tuple(2, InvoiceImportStatus.IMPORTED),
+                        tuple(4, InvoiceImportStatus.REJECTED),
+                        tuple(5, InvoiceImportStatus.IMPORTED));
+
+        webTestClient.get()
+                .uri("/api/invoices/find-item?itemName=monitor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> {
+                    assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("CSV-1");
+                    assertThat(l.get(0).getCompanyName()).isEqualTo("Euronics");
+                    assertThat(l.get(0).getItems()).extracting(InvoiceItem::getName).containsExactly("monitor", "hangszóró");
+                });
+    }
+}
@@ -0,0 +1,72 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "invoicekeeper.sql.slow-query-threshold=0ms")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+@ExtendWith(OutputCaptureExtension.class)
+@AutoConfigureMetrics
+class MetricsIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: service, repository, mapping, serialization, SQL and pool metrics in Prometheus format.")
+    void testPrometheusMetrics() {
+        webTestClient.get().uri("/api/invoices/1").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/invoices/find-item?itemName=RAM").exchange().expectStatus().isOk();
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("84568BB", 10000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk();
+
+        String metrics = webTestClient.get()
+                .uri("/actuator/prometheus")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult().getResponseBody();
+
+        assertThat(metrics)
+                .contains("invoicekeeper_service_seconds_count{class=\"invoicekeeper.service.InvoicingService\",exception=\"none\",method=\"getInvoiceById\",}")
+                .contains("invoicekeeper_repository_seconds_count{class=\"invoicekeeper.repositories.ItemNameIndexRepository\",exception=\"none\",method=\"findInvoiceIdsByItemName\",}")
+                .contains("spring_data_repository_invocations_seconds_count{exception=\"None\",method=\"findRowsById\",")
+                .contains("invoicekeeper_mapping_seconds_count{mapper=\"InvoiceMapperImpl\",method=\"toDto\",}")
+                .contains("invoicekeeper_json_serialization_seconds_count")
+                .contains("invoicekeeper_sql_seconds_count{batch=\"false\",type=\"select\",}")
+                .contains("hikaricp_connections_active");
+    }
+
+    @Test
+    @DisplayName("Test: statements slower than the threshold are logged without their parameters.")
+    void testSlowQueryLog(CapturedOutput output) {
+        webTestClient.get().uri("/api/invoices/find-item?itemName=RAM").exchange().expectStatus().isOk();
+
+        assertThat(output.getOut()).contains("Slow SQL").contains("item_name_ngrams").doesNotContain("'ram'");
+    }
+}
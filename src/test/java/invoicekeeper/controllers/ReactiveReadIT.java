@@ -0,0 +1,146 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ReactiveReadIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: find an invoice by id, the same as the blocking endpoint.")
+    void testGetInvoiceById() {
+        InvoiceDto result = getInvoices("/api/reactive/invoices/5").get(0);
+
+        assertThat(result).usingRecursiveComparison().isEqualTo(getInvoices("/api/invoices/5").get(0));
+        assertThat(result.getItems()).extracting("name").containsExactly("RAM", "GPU", "alaplap");
+    }
+
+    @Test
+    @DisplayName("Test: invoice and company not found.")
+    void testNotFound() {
+        webTestClient.get()
+                .uri("/api/reactive/invoices/100")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.status").isEqualTo(404);
+
+        webTestClient.get()
+                .uri("/api/reactive/companies/vat-number/11111111-1-11")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.status").isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Test: filtered listing and the next page cursor match the blocking endpoint.")
+    void testGetAllInvoices() {
+        String cursor = webTestClient.get()
+                .uri("/api/reactive/invoices?paymentStatus=UNPAYED&size=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Next-Cursor", nextCursor("/api/invoices?paymentStatus=UNPAYED&size=2"))
+                .expectBodyList(InvoiceDto.class)
+                .value(l -> assertThat(l).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB", "XG45-12"))
+                .returnResult().getResponseHeaders().getFirst("X-Next-Cursor");
+
+        List<InvoiceDto> lastPage = getInvoices("/api/reactive/invoices?paymentStatus=UNPAYED&size=2&cursor=" + cursor);
+
+        assertThat(lastPage).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(getInvoices("/api/invoices?paymentStatus=UNPAYED&size=2&cursor=" + cursor));
+    }
+
+    @Test
+    @DisplayName("Test: stream invoices with their items as newline delimited JSON.")
+    void testStreamAllInvoices() {
+        List<InvoiceDto> result = webTestClient.get()
+                .uri("/api/reactive/invoices?companyName=uro")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(InvoiceDto.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        assertThat(result).extracting(InvoiceDto::getInvoiceNumber).containsExactly("84568BB", "995468RS", "XG45-12");
+        assertThat(result.get(1).getItems()).extracting("name").containsExactlyInAnyOrder("4K TV", "Playstation 5");
+    }
+
+    @Test
+    @DisplayName("Test: item search returns the same invoices in the same order as the blocking endpoint.")
+    void testGetAllInvoicesWithItem() {
+        List<InvoiceDto> result = getInvoices("/api/reactive/invoices/find-item?itemName=RAM");
+
+        assertThat(result).extracting(InvoiceDto::getInvoiceNumber).containsOnly("123456AB", "45996EE");
+        assertThat(result).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(getInvoices("/api/invoices/find-item?itemName=RAM"));
+    }
+
+    @Test
+    @DisplayName("Test: company summaries by id, VAT number and name match the blocking endpoints.")
+    void testFindCompanies() {
+        assertThat(getCompanies("/api/reactive/companies/2")).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(getCompanies("/api/companies/2"));
+        assertThat(getCompanies("/api/reactive/companies/vat-number/19265322-1-42")).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(getCompanies("/api/companies/vat-number/19265322-1-42"));
+
+        List<CompanyDto> result = getCompanies("/api/reactive/companies?searchName=Euro");
+
+        assertThat(result).extracting(CompanyDto::getCompanyName).containsExactly("Euronics", "Euro Family");
+        assertThat(result).usingRecursiveFieldByFieldElementComparator()
+                .containsExactlyElementsOf(getCompanies("/api/companies?searchName=Euro"));
+    }
+
+    private List<InvoiceDto> getInvoices(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(InvoiceDto.class)
+                .returnResult().getResponseBody();
+    }
+
+    private List<CompanyDto> getCompanies(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(CompanyDto.class)
+                .returnResult().getResponseBody();
+    }
+
+    private String nextCursor(String uri) {
+        return webTestClient.get()
+                .uri(uri)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(InvoiceDto.class)
+                .getResponseHeaders().getFirst("X-Next-Cursor");
+    }
+}
@@ -0,0 +1,55 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.service.CompanyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"invoicekeeper.replica.url=jdbc:mariadb://localhost:1/invoicekeeper_replica",
+                "invoicekeeper.replica.hikari.connection-timeout=250"})
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ReadReplicaFallbackIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: the reads fall back to the primary while the replica is unreachable.")
+    void testFallbackToPrimary() {
+        webTestClient.get()
+                .uri("/api/companies/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDto.class)
+                .value(company -> assertEquals("Best Byte", company.getCompanyName()));
+        webTestClient.get()
+                .uri("/api/invoices/1")
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(meterRegistry.get("invoicekeeper.datasource.connections").tag("target", "fallback").functionCounter().count())
+                .isGreaterThanOrEqualTo(2);
+        assertEquals(0, meterRegistry.get("invoicekeeper.datasource.connections").tag("target", "replica").functionCounter().count());
+    }
+}
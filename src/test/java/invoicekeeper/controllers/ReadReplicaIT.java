@@ -0,0 +1,133 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.AddNewInvoiceCommand;
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The replica is a second database on the same server, filled with the test data and then changed a little, so a
+ * response tells which database it was read from.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "invoicekeeper.replica.url=jdbc:mariadb://localhost/invoicekeeper_replica?createDatabaseIfNotExist=true")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ReadReplicaIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    @Qualifier("dataSource")
+    DataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replicaDataSource;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+        Flyway.configure().dataSource(replicaDataSource).load().migrate();
+        new ResourceDatabasePopulator(new ClassPathResource("cleartables.sql"), new ClassPathResource("testdata.sql"))
+                .execute(replicaDataSource);
+        new JdbcTemplate(replicaDataSource).update("update companies set name_of_company = 'Best Byte Replica' where company_id = 1");
+    }
+
+    @Test
+    @DisplayName("Test: the read-only service methods read the replica.")
+    void testReadsFromReplica() {
+        double before = replicaConnections();
+
+        webTestClient.get()
+                .uri("/api/companies/1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(CompanyDto.class)
+                .value(company -> assertEquals("Best Byte Replica", company.getCompanyName()));
+        webTestClient.get()
+                .uri("/api/companies?searchName=Replica")
+                .exchange()
+                .expectBodyList(CompanyDto.class)
+                .value(companies -> assertThat(companies).extracting(CompanyDto::getId).containsExactly(1L));
+
+        assertThat(replicaConnections()).isGreaterThan(before);
+        assertThat(meterRegistry.find("hikaricp.connections").tag("pool", "replica").gauge()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test: writes go to the primary, and the reads within a write see its changes.")
+    void testWritesOnPrimary() {
+        webTestClient.post()
+                .uri("/api/companies/2")
+                .bodyValue(new AddNewInvoiceCommand("RPL-1", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(CompanyDto.class)
+                .value(company -> assertEquals(3, company.getInvoiceCount()));
+
+        assertEquals(1, countInvoices(primaryDataSource, "RPL-1"));
+        assertEquals(0, countInvoices(replicaDataSource, "RPL-1"));
+    }
+
+    @Test
+    @DisplayName("Test: a company not on the replica yet is not cached as unknown by a replica read.")
+    void testReplicaReadsNotCached() {
+        new JdbcTemplate(primaryDataSource).update("insert into companies (name_of_company, vat_number, bank_account_number) " +
+                "values ('Penny', '12345678-2-44', '11111111-22222222-33333333')");
+
+        webTestClient.get()
+                .uri("/api/companies/vat-number/12345678-2-44")
+                .exchange()
+                .expectStatus().isNotFound();
+        assertEquals(0, meterRegistry.get("cache.size").tag("cache", "companiesByVatNumber").gauge().value());
+
+        webTestClient.post()
+                .uri("/api/invoices")
+                .bodyValue(new CreateNewInvoiceCommand("RPL-2", LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                        PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                        "Penny Market", "12345678-2-44", "11111111-22222222-33333333"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(InvoiceDto.class)
+                .value(invoice -> assertEquals("Penny", invoice.getCompanyName()));
+    }
+
+    private double replicaConnections() {
+        return meterRegistry.get("invoicekeeper.datasource.connections").tag("target", "replica").functionCounter().count();
+    }
+
+    private int countInvoices(DataSource dataSource, String invoiceNumber) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from invoices where invoice_number = ?", Integer.class, invoiceNumber);
+    }
+}
@@ -0,0 +1,129 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class ReportControllerIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: receivables of every company and overall.")
+    void testGetReceivables() {
+        ReceivablesReportDto report = getReceivables();
+
+        assertThat(report.getDate()).isEqualTo(LocalDate.now());
+        assertThat(report.getCompanies())
+                .extracting(ReceivablesDto::getCompanyName, ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount,
+                        ReceivablesDto::getOverdueCount, ReceivablesDto::getOverdueAmount, ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(
+                        tuple("Best Byte", 1L, 5400L, 1L, 5400L, 1L, 1200L),
+                        tuple("Euronics", 1L, 10000L, 1L, 10000L, 1L, 6000L),
+                        tuple("Euro Family", 1L, 200L, 1L, 200L, 0L, 0L));
+        assertThat(report.getTotal())
+                .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount, ReceivablesDto::getOverdueCount,
+                        ReceivablesDto::getOverdueAmount, ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(3L, 15600L, 3L, 15600L, 2L, 7200L);
+    }
+
+    @Test
+    @DisplayName("Test: receivables follow saving, paying and deleting invoices and deleting companies.")
+    void testReceivablesAfterChanges() {
+        CreateNewInvoiceCommand command = new CreateNewInvoiceCommand("2468", LocalDate.now(), LocalDate.now().plusDays(30),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Euronics", "84512648-1-45", "84245689-12358698-22222222");
+        webTestClient.post().uri("/api/invoices").bodyValue(command).exchange().expectStatus().isCreated();
+
+        assertThat(receivablesOf("Euronics"))
+                .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount, ReceivablesDto::getOverdueCount, ReceivablesDto::getOverdueAmount)
+                .containsExactly(2L, 10500L, 1L, 10000L);
+
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("2468", 500, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(receivablesOf("Euronics"))
+                .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount, ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(1L, 10000L, 2L, 6500L);
+
+        webTestClient.delete().uri("/api/invoices/1").exchange().expectStatus().isNoContent();
+        webTestClient.delete().uri("/api/companies/3").exchange().expectStatus().isNoContent();
+
+        ReceivablesReportDto report = getReceivables();
+        assertThat(report.getCompanies()).extracting(ReceivablesDto::getCompanyName).containsExactly("Best Byte", "Euronics");
+        assertThat(receivablesOf("Best Byte"))
+                .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(1L, 0L, 0L);
+        assertThat(report.getTotal())
+                .extracting(ReceivablesDto::getUnpaidAmount, ReceivablesDto::getPaidAmount)
+                .containsExactly(15400L, 6500L);
+    }
+
+    @Test
+    @DisplayName("Test: receivables include imported invoices.")
+    void testReceivablesAfterImport() {
+        String body = """
+                {"invoiceNumber":"IMP-1","issueDate":"2022-06-01","dueDate":"2022-07-01","paymentStatus":"UNPAYED","items":[],"amount":900,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                {"invoiceNumber":"IMP-2","issueDate":"2022-06-02","dueDate":"2022-07-01","paymentStatus":"UNPAYED","items":[],"amount":100,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                {"invoiceNumber":"IMP-3","issueDate":"2022-06-02","dueDate":"2022-07-02","paymentStatus":"PAYED","items":[],"amount":300,"companyName":"Penny","vatNumber":"12345678-2-44","bankAccountNumber":"11111111-22222222-33333333"}
+                """;
+        webTestClient.post()
+                .uri("/api/invoices/batch")
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .bodyValue(body)
+                .exchange()
+                .expectStatus().isOk();
+
+        assertThat(receivablesOf("Penny"))
+                .extracting(ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount, ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(2L, 1000L, 1L, 300L);
+    }
+
+    private ReceivablesReportDto getReceivables() {
+        return webTestClient.get()
+                .uri("/api/reports/receivables")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReceivablesReportDto.class)
+                .returnResult().getResponseBody();
+    }
+
+    private ReceivablesDto receivablesOf(String companyName) {
+        return getReceivables().getCompanies().stream()
+                .filter(r -> companyName.equals(r.getCompanyName()))
+                .findFirst()
+                .orElseThrow();
+    }
+}
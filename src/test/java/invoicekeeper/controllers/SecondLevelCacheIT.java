@@ -0,0 +1,149 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CompanyDto;
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.PayInvoiceCommand;
+import invoicekeeper.dtos.UpdateAccountNumberCommand;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "invoicekeeper.second-level-cache.enabled=true")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class SecondLevelCacheIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+        entityManagerFactory.getCache().unwrap(Cache.class).evictAllRegions();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Test: an invoice read again comes from the query cache with its items and company, only its version is read.")
+    void testInvoiceFromCache() {
+        webTestClient.get().uri("/api/invoices/5").exchange().expectStatus().isOk();
+        statistics.clear();
+
+        InvoiceDto invoice = webTestClient.get()
+                .uri("/api/invoices/5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceDto.class)
+                .returnResult().getResponseBody();
+
+        assertEquals(3, invoice.getItems().size());
+        assertEquals("Best Byte", invoice.getCompanyName());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+        assertThat(meterRegistry.find("hibernate.cache.query.requests").tags("result", "hit").functionCounter())
+                .isNotNull();
+    }
+
+    @Test
+    @DisplayName("Test: company summaries read again come from the query cache.")
+    void testCompanySummariesFromQueryCache() {
+        webTestClient.get().uri("/api/companies").exchange().expectStatus().isOk();
+        statistics.clear();
+
+        webTestClient.get().uri("/api/companies").exchange().expectStatus().isOk();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    @DisplayName("Test: paying an invoice updates the cached invoice and company summary.")
+    void testPaymentUpdatesCache() {
+        webTestClient.get().uri("/api/invoices/2").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/companies/2").exchange().expectStatus().isOk();
+
+        webTestClient.put()
+                .uri("/api/invoices/payment")
+                .bodyValue(new PayInvoiceCommand("84568BB", 10000, "84245689-12358698-22222222"))
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/invoices/2").exchange()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals(PaymentStatus.PAYED, i.getPaymentStatus()));
+        webTestClient.get().uri("/api/companies/2").exchange()
+                .expectBody(CompanyDto.class)
+                .value(c -> assertEquals(0, c.getOpenAmount()));
+    }
+
+    @Test
+    @DisplayName("Test: JDBC batch writes of the statement reconciliation and the import evict the cached state.")
+    void testBatchWritesEvictCache() {
+        webTestClient.get().uri("/api/invoices/2").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/companies/2").exchange().expectStatus().isOk();
+        webTestClient.get().uri("/api/companies").exchange().expectStatus().isOk();
+
+        webTestClient.post()
+                .uri("/api/invoices/payment/statement")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue("bookingDate,invoiceNumber,amount,bankAccountNumber\n2022-07-01,84568BB,10000,84245689-12358698-22222222\n")
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.post()
+                .uri("/api/invoices/batch")
+                .contentType(MediaType.parseMediaType(InvoiceController.NDJSON_VALUE))
+                .bodyValue("{\"invoiceNumber\":\"BATCH-1\",\"issueDate\":\"2022-06-17\",\"dueDate\":\"2022-06-25\",\"paymentStatus\":\"UNPAYED\"," +
+                        "\"items\":[{\"name\":\"RAM\",\"pieces\":1,\"priceTotal\":500}],\"amount\":500,\"companyName\":\"Euronics\"," +
+                        "\"vatNumber\":\"84512648-1-45\",\"bankAccountNumber\":\"84245689-12358698-22222222\"}\n")
+                .exchange()
+                .expectStatus().isOk();
+
+        webTestClient.get().uri("/api/invoices/2").exchange()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals(PaymentStatus.PAYED, i.getPaymentStatus()));
+        webTestClient.get().uri("/api/companies").exchange()
+                .expectBodyList(CompanyDto.class)
+                .value(companies -> assertThat(companies)
+                        .filteredOn(c -> c.getId() == 2)
+                        .extracting(CompanyDto::getInvoiceCount, CompanyDto::getOpenAmount)
+                        .containsExactly(tuple(3L, 500L)));
+        webTestClient.put()
+                .uri("/api/companies/2")
+                .bodyValue(new UpdateAccountNumberCommand("11111111-22222222-33333333"))
+                .exchange()
+                .expectStatus().isOk();
+        webTestClient.delete()
+                .uri("/api/companies/2")
+                .exchange()
+                .expectStatus().isNoContent();
+    }
+}
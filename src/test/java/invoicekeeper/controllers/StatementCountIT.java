@@ -0,0 +1,129 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.CreateNewInvoiceCommand;
+import invoicekeeper.model.InvoiceItem;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.jpa.properties.hibernate.generate_statistics=true",
+                "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn"})
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class StatementCountIT {
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Test: listing invoices reads the version stamp of the page, then selects the page and its items in two statements without loading entities.")
+    void testGetAllInvoicesStatementCount() {
+        webTestClient.get().uri("/api/invoices").exchange().expectStatus().isOk();
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Test: finding an invoice by id reads its version, then selects it with one statement without loading entities.")
+    void testGetInvoiceByIdStatementCount() {
+        webTestClient.get().uri("/api/invoices/1").exchange().expectStatus().isOk();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Test: a not modified invoice is answered from its version with one statement.")
+    void testGetInvoiceByIdNotModifiedStatementCount() {
+        String eTag = webTestClient.get().uri("/api/invoices/1").exchange().expectStatus().isOk()
+                .returnResult(String.class).getResponseHeaders().getETag();
+        statistics.clear();
+
+        webTestClient.get().uri("/api/invoices/1").ifNoneMatch(eTag).exchange().expectStatus().isNotModified();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Test: item search uses one statement without loading entities.")
+    void testGetInvoicesByItemNameStatementCount() {
+        webTestClient.get().uri("/api/invoices/find-item?itemName=RAM").exchange().expectStatus().isOk();
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    @DisplayName("Test: listing companies reads their version stamp, then the summaries with one statement.")
+    void testFindAllCompaniesStatementCount() {
+        webTestClient.get().uri("/api/companies").exchange().expectStatus().isOk();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Test: finding a company by id reads its version, then the summary with one statement.")
+    void testGetCompanyByIdStatementCount() {
+        webTestClient.get().uri("/api/companies/2").exchange().expectStatus().isOk();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Test: finding a company by an already looked up VAT number reads its version, then the summary with one statement.")
+    void testGetCompanyByVatNumberStatementCount() {
+        webTestClient.get().uri("/api/companies/vat-number/84512648-1-45").exchange().expectStatus().isOk();
+        statistics.clear();
+
+        webTestClient.get().uri("/api/companies/vat-number/84512648-1-45").exchange().expectStatus().isOk();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Test: saving an invoice of an already looked up company only inserts the invoice and its items.")
+    void testSaveNewInvoiceStatementCount() {
+        webTestClient.post().uri("/api/invoices").bodyValue(invoiceOfEuronics("2468")).exchange().expectStatus().isCreated();
+        statistics.clear();
+
+        webTestClient.post().uri("/api/invoices").bodyValue(invoiceOfEuronics("2469")).exchange().expectStatus().isCreated();
+
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private CreateNewInvoiceCommand invoiceOfEuronics(String invoiceNumber) {
+        return new CreateNewInvoiceCommand(invoiceNumber, LocalDate.parse("2022-06-17"), LocalDate.parse("2022-06-25"),
+                PaymentStatus.UNPAYED, List.of(new InvoiceItem("gyufa", 1, 500)), 500,
+                "Euronics", "84512648-1-45", "84245689-12358698-22222222");
+    }
+}
@@ -0,0 +1,224 @@
+package invoicekeeper.controllers;
+
+import invoicekeeper.dtos.InvoiceDto;
+import invoicekeeper.dtos.ReceivablesDto;
+import invoicekeeper.dtos.ReceivablesReportDto;
+import invoicekeeper.dtos.ReconciliationReportDto;
+import invoicekeeper.dtos.TransferResultDto;
+import invoicekeeper.dtos.TransferStatus;
+import invoicekeeper.model.PaymentStatus;
+import invoicekeeper.service.CompanyCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "invoicekeeper.reconciliation.batch-size=2")
+@Sql(scripts = {"/cleartables.sql", "/testdata.sql"})
+class StatementReconciliationIT {
+
+    static final String STATEMENT = """
+            bookingDate,invoiceNumber,amount,bankAccountNumber,reference
+            2022-07-01,84568BB,10000,84245689-12358698-22222222,Euronics
+            2022-07-01,XG45-12,300,48695842-45236874-88888888,Euro Family
+            2022-07-01,45996EE,5400,84245689-12358698-22222222,Best Byte
+            2022-07-01,NOPE-1,100,12345876-86496452-11111111,Best Byte
+            2022-07-01,123456AB,1200,12345876-86496452-11111111,Best Byte
+            2022-07-02,84568BB,10000,84245689-12358698-22222222,Euronics
+            2022-07-02,XG45-12,200,48695842-45236874-88888888,Euro Family
+            2022-07-02,XG45-12,200,48695842-45236874-88888888,Euro Family
+            2022-07-02,45996EE,sok,12345876-86496452-11111111,Best Byte
+            2022-07-02,45996EE,100,123,Best Byte
+            """;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    CompanyCache companyCache;
+
+    @Autowired
+    DataSource dataSource;
+
+    @BeforeEach
+    void init() {
+        companyCache.clear();
+    }
+
+    @Test
+    @DisplayName("Test: reconcile a bank statement, reporting every transfer.")
+    void testReconcileStatement() {
+        ReconciliationReportDto report = reconcile();
+
+        assertEquals(2, report.getMatched());
+        assertEquals(7, report.getRejected());
+        assertEquals(1, report.getUnknown());
+        assertThat(report.getResults())
+                .extracting(TransferResultDto::getRecord, TransferResultDto::getInvoiceNumber, TransferResultDto::getStatus)
+                .containsExactly(
+                        tuple(2, "84568BB", TransferStatus.MATCHED),
+                        tuple(3, "XG45-12", TransferStatus.REJECTED),
+                        tuple(4, "45996EE", TransferStatus.REJECTED),
+                        tuple(5, "NOPE-1", TransferStatus.UNKNOWN),
+                        tuple(6, "123456AB", TransferStatus.REJECTED),
+                        tuple(7, "84568BB", TransferStatus.REJECTED),
+                        tuple(8, "XG45-12", TransferStatus.MATCHED),
+                        tuple(9, "XG45-12", TransferStatus.REJECTED),
+                        tuple(10, null, TransferStatus.REJECTED),
+                        tuple(11, "45996EE", TransferStatus.REJECTED));
+        assertThat(report.getResults().get(1).getViolations()).extracting("field").containsExactly("amount");
+        assertThat(report.getResults().get(2).getViolations()).extracting("field").containsExactly("bankAccountNumber");
+        assertThat(report.getResults().get(5).getViolations()).extracting("message")
+                .containsExactly("Invoice with invoice number 84568BB is already paid.");
+        assertThat(report.getResults().get(9).getViolations()).extracting("field").containsExactly("bankAccountNumber");
+    }
+
+    @Test
+    @DisplayName("Test: matched transfers pay the invoices and update the receivables.")
+    void testReconcileStatementPaysInvoices() {
+        reconcile();
+
+        webTestClient.get()
+                .uri("/api/invoices/2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals(PaymentStatus.PAYED, i.getPaymentStatus()));
+
+        ReceivablesReportDto receivables = webTestClient.get()
+                .uri("/api/reports/receivables")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReceivablesReportDto.class)
+                .returnResult().getResponseBody();
+        assertThat(receivables.getCompanies())
+                .extracting(ReceivablesDto::getCompanyName, ReceivablesDto::getUnpaidCount, ReceivablesDto::getUnpaidAmount,
+                        ReceivablesDto::getPaidCount, ReceivablesDto::getPaidAmount)
+                .containsExactly(
+                        tuple("Best Byte", 1L, 5400L, 1L, 1200L),
+                        tuple("Euronics", 0L, 0L, 2L, 16000L),
+                        tuple("Euro Family", 0L, 0L, 1L, 200L));
+    }
+
+    @Test
+    @DisplayName("Test: a transfer to a bank account number changed while the statement is processed is rejected.")
+    void testReconcileStatementWhileAccountNumberChanges() throws Exception {
+        String statement = """
+                bookingDate,invoiceNumber,amount,bankAccountNumber,reference
+                2022-07-01,84568BB,10000,84245689-12358698-22222222,Euronics
+                """;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement update = connection.createStatement()) {
+                update.executeUpdate("update companies set bank_account_number = '11111111-22222222-33333333', version = version + 1 " +
+                        "where company_id = 2");
+            }
+            Future<ReconciliationReportDto> report = executor.submit(() -> reconcile(statement));
+            awaitLockWait();
+            connection.commit();
+
+            assertThat(report.get(60, TimeUnit.SECONDS).getResults())
+                    .singleElement()
+                    .satisfies(result -> {
+                        assertEquals(TransferStatus.REJECTED, result.getStatus());
+                        assertThat(result.getViolations()).extracting("field").containsExactly("bankAccountNumber");
+                    });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        webTestClient.get()
+                .uri("/api/invoices/2")
+                .exchange()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals(PaymentStatus.UNPAYED, i.getPaymentStatus()));
+    }
+
+    @Test
+    @DisplayName("Test: in a batch of several companies, the transfers to an account changed or to an invoice paid meanwhile are rejected.")
+    void testReconcileBatchWhileAccountNumberChangesAndInvoiceIsPaid() throws Exception {
+        String statement = """
+                bookingDate,invoiceNumber,amount,bankAccountNumber,reference
+                2022-07-01,84568BB,10000,84245689-12358698-22222222,Euronics
+                2022-07-01,XG45-12,200,48695842-45236874-88888888,Euro Family
+                """;
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement update = connection.createStatement()) {
+                update.executeUpdate("update companies set bank_account_number = '11111111-22222222-33333333', version = version + 1 " +
+                        "where company_id = 2");
+                update.executeUpdate("update invoices set payment_status = 'PAYED', version = version + 1 " +
+                        "where invoice_number = 'XG45-12'");
+            }
+            Future<ReconciliationReportDto> report = executor.submit(() -> reconcile(statement));
+            awaitLockWait();
+            connection.commit();
+
+            List<TransferResultDto> results = report.get(60, TimeUnit.SECONDS).getResults();
+            assertThat(results).extracting(TransferResultDto::getStatus).containsOnly(TransferStatus.REJECTED);
+            assertThat(results.get(0).getViolations()).extracting("field").containsExactly("bankAccountNumber");
+            assertThat(results.get(1).getViolations()).extracting("message")
+                    .containsExactly("Invoice with invoice number XG45-12 is already paid.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        webTestClient.get()
+                .uri("/api/invoices/2")
+                .exchange()
+                .expectBody(InvoiceDto.class)
+                .value(i -> assertEquals(PaymentStatus.UNPAYED, i.getPaymentStatus()));
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from change_events where event_type = 'INVOICE_PAID'", Integer.class));
+    }
+
+    /**
+     * Waits until a transaction is blocked on a lock, the reconciliation on the rows held by the test's connection.
+     */
+    private void awaitLockWait() throws InterruptedException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < 600; i++) {
+            if (jdbcTemplate.queryForObject("select count(*) from information_schema.innodb_trx where trx_state = 'LOCK WAIT'",
+                    Integer.class) > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new IllegalStateException("The reconciliation did not wait for the locked rows.");
+    }
+
+    private ReconciliationReportDto reconcile() {
+        return reconcile(STATEMENT);
+    }
+
+    private ReconciliationReportDto reconcile(String statement) {
+        return webTestClient.post()
+                .uri("/api/invoices/payment/statement")
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(statement)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReconciliationReportDto.class)
+                .returnResult().getResponseBody();
+    }
+}
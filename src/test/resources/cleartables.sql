@@ -1,6 +1,12 @@
+delete from item_name_ngrams;
+delete from company_name_tokens;
 delete from items_on_invoices;
 delete from invoices;
+delete from items_on_invoices_archive;
+delete from invoices_archive;
+delete from receivables;
 delete from companies;
+delete from change_events;
 
 alter table companies auto_increment=1;
 alter table invoices auto_increment=1;
@@ -4,6 +4,12 @@ values("Best Byte", "12345678-1-45", "12345876-86496452-11111111"),
       ("Euro Family", "98765432-2-55", "48695842-45236874-88888888"),
       ("Pannon Egyetem", "19265322-1-42", "17246879-30001000-00000000");
 
+insert into company_name_tokens (starts_name, token, company_id)
+values (TRUE, "best byte", 1), (FALSE, "byte", 1),
+       (TRUE, "euronics", 2),
+       (TRUE, "euro family", 3), (FALSE, "family", 3),
+       (TRUE, "pannon egyetem", 4), (FALSE, "egyetem", 4);
+
 insert into invoices (invoice_number, date_of_issue, due_date, payment_status, amount_total, company_id)
 values("123456AB", "2020-12-22", "2020-12-28", "PAYED", 1200, 1),
       ("84568BB", "2021-01-12", "2021-02-01", "UNPAYED", 10000, 2),
@@ -21,3 +27,24 @@ values(1, "RAM", 5, 1000),
       (5, "RAM", 2, 2000),
       (5, "GPU", 2, 2400),
       (5, "alaplap", 1, 1000);
+
+insert into item_name_ngrams (ngram, invoice_id)
+values ("ram", 1), ("am ", 1), ("m  ", 1), ("pro", 1), ("roc", 1), ("oce", 1), ("ces", 1), ("ess", 1), ("ssz", 1),
+       ("szo", 1), ("zor", 1), ("or ", 1), ("r  ", 1),
+       ("oko", 2), ("kos", 2), ("ost", 2), ("ste", 2), ("tel", 2), ("ele", 2), ("lef", 2), ("efo", 2), ("fon", 2),
+       ("on ", 2), ("n  ", 2),
+       ("4k ", 3), ("k t", 3), (" tv", 3), ("tv ", 3), ("v  ", 3), ("pla", 3), ("lay", 3), ("ays", 3), ("yst", 3),
+       ("sta", 3), ("tat", 3), ("ati", 3), ("tio", 3), ("ion", 3), ("on ", 3), ("n 5", 3), (" 5 ", 3), ("5  ", 3),
+       ("ter", 4), ("erm", 4), ("rmo", 4), ("mos", 4), ("osz", 4), ("sz ", 4), ("z  ", 4),
+       ("ram", 5), ("am ", 5), ("m  ", 5), ("gpu", 5), ("pu ", 5), ("u  ", 5), ("ala", 5), ("lap", 5), ("apl", 5),
+       ("pla", 5), ("ap ", 5), ("p  ", 5);
+
+insert into receivables (company_id, due_date, unpaid_count, unpaid_amount, paid_count, paid_amount)
+SELECT company_id,
+       due_date,
+       SUM(CASE WHEN payment_status = 'UNPAYED' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'UNPAYED' THEN amount_total ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'PAYED' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN payment_status = 'PAYED' THEN amount_total ELSE 0 END)
+FROM invoices
+GROUP BY company_id, due_date;